@@ -0,0 +1,44 @@
+package com.geppetto.MediRecords.benchmark;
+
+import java.time.LocalDateTime;
+
+import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.model.Billingdetails;
+
+/**
+ * Deterministic rows shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final String[] DOCTORS = { "Dr Adams", "Dr Baker", "Dr Clarke", "Dr Davies", "Dr Evans" };
+    private static final String[] STATUSES = { "PAID", "PENDING", "OVERDUE" };
+    private static final LocalDateTime FIRST_SLOT = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    private BenchmarkData() {
+    }
+
+    static String id(int i) {
+        return String.format("01HZX%021d", i);
+    }
+
+    static Appointment appointment(int i) {
+        return Appointment.builder()
+                .id(id(i))
+                .appointmentid(i)
+                .patientid(i % 1000)
+                .doctorname(DOCTORS[i % DOCTORS.length])
+                .starttime(FIRST_SLOT.plusMinutes(30L * i))
+                .endtime(FIRST_SLOT.plusMinutes(30L * i + 30))
+                .build();
+    }
+
+    static Billingdetails billingdetails(int i) {
+        return Billingdetails.builder()
+                .id(id(i))
+                .billingid(i)
+                .patientid(i % 1000)
+                .paymentstatus(STATUSES[i % STATUSES.length])
+                .build();
+    }
+
+}
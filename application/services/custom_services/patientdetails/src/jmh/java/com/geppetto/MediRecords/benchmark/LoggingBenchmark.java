@@ -0,0 +1,98 @@
+package com.geppetto.MediRecords.benchmark;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+
+/**
+ * Caller-side cost of the four enter/exit lines a request logs, with the
+ * appender setups of logback-spring.xml:
+ * <ul>
+ * <li>{@code SYNC}: the encoder runs on the request thread;</li>
+ * <li>{@code ASYNC}: events are queued and encoded by a worker, and dropped
+ * once the queue passes the discarding threshold;</li>
+ * <li>{@code GATED}: the logger is at WARN, as the controller and service
+ * loggers are by default.</li>
+ * </ul>
+ * Output goes to a null stream, so this measures CPU on the request thread,
+ * not I/O.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    @Param({ "SYNC", "ASYNC", "GATED" })
+    public String mode;
+
+    private LoggerContext loggerContext;
+    private Logger logger;
+
+    @Setup
+    public void setUp() {
+        loggerContext = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(loggerContext);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+
+        Appender<ILoggingEvent> appender = output;
+        if ("ASYNC".equals(mode)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(loggerContext);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.setNeverBlock(true);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+        logger = loggerContext.getLogger("com.geppetto.MediRecords.controller.AppointmentController");
+        logger.setLevel("GATED".equals(mode) ? Level.WARN : Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggerContext.stop();
+    }
+
+    @Benchmark
+    public void requestLines() {
+        logger.info("Enter into searchAppointment method");
+        logger.info("Entering searchAppointment method for SQL");
+        logger.info("Exiting searchAppointment method for SQL. Results found: {}", 42);
+        logger.info("Exit from searchAppointment method");
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.geppetto.MediRecords.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.dto.BillingdetailsDto;
+import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.model.Billingdetails;
+import com.geppetto.MediRecords.util.PatientDetailsUtil;
+
+/**
+ * Cost of the entity/DTO mapping done on every request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private final PatientDetailsUtil patientDetailsUtil = new PatientDetailsUtil();
+
+    private Appointment appointment;
+    private AppointmentDto appointmentDto;
+    private Billingdetails billingdetails;
+    private BillingdetailsDto billingdetailsDto;
+
+    @Setup
+    public void setUp() {
+        appointment = BenchmarkData.appointment(1);
+        appointmentDto = patientDetailsUtil.toDto(appointment);
+        billingdetails = BenchmarkData.billingdetails(1);
+        billingdetailsDto = patientDetailsUtil.toDto(billingdetails);
+    }
+
+    @Benchmark
+    public AppointmentDto appointmentToDto() {
+        return patientDetailsUtil.toDto(appointment);
+    }
+
+    @Benchmark
+    public Appointment appointmentToEntity() {
+        return patientDetailsUtil.toEntity(appointmentDto);
+    }
+
+    @Benchmark
+    public BillingdetailsDto billingdetailsToDto() {
+        return patientDetailsUtil.toDto(billingdetails);
+    }
+
+    @Benchmark
+    public Billingdetails billingdetailsToEntity() {
+        return patientDetailsUtil.toEntity(billingdetailsDto);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.geppetto.MediRecords.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * The search query builder as it was before {@code SearchFieldRegistry}:
+ * every parameter is resolved with {@code getDeclaredField}, and parameters
+ * that are not fields throw {@link NoSuchFieldException}, which is printed.
+ * Kept verbatim as the baseline of {@link SearchFieldResolutionBenchmark}.
+ */
+final class ReflectiveSearchQuery {
+
+    private ReflectiveSearchQuery() {
+    }
+
+    static <T> Specification<T> constructSearchQuery(Map<String, String> allParams, Class<T> entityClass) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            allParams.forEach((key, value) -> {
+                if (value != null && !value.isEmpty()) {
+                    try {
+                        Class<?> fieldType = entityClass.getDeclaredField(key).getType();
+
+                        if (fieldType.equals(String.class)) {
+                            predicates.add(criteriaBuilder.like(root.get(key), "%" + value + "%"));
+                        } else if (fieldType.equals(Integer.class) || fieldType.equals(int.class)) {
+                            predicates.add(criteriaBuilder.equal(root.get(key), Integer.parseInt(value)));
+                        } else if (fieldType.equals(Long.class) || fieldType.equals(long.class)) {
+                            predicates.add(criteriaBuilder.equal(root.get(key), Long.parseLong(value)));
+                        } else if (fieldType.equals(Boolean.class) || fieldType.equals(boolean.class)) {
+                            predicates.add(criteriaBuilder.equal(root.get(key), Boolean.parseBoolean(value)));
+                        } else if (fieldType.equals(Double.class) || fieldType.equals(double.class)) {
+                            predicates.add(criteriaBuilder.equal(root.get(key), Double.parseDouble(value)));
+                        } else if (fieldType.equals(Float.class) || fieldType.equals(float.class)) {
+                            predicates.add(criteriaBuilder.equal(root.get(key), Float.parseFloat(value)));
+                        } else {
+                            predicates.add(criteriaBuilder.equal(root.get(key), value));
+                        }
+                    } catch (NoSuchFieldException e) {
+                        System.out.print("NoSuchFieldException:" + e);
+                    }
+                }
+            });
+
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+}
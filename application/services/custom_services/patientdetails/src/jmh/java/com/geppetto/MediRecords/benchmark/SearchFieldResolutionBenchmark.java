@@ -0,0 +1,130 @@
+package com.geppetto.MediRecords.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.model.Billingdetails;
+import com.geppetto.MediRecords.util.PatientDetailsUtil;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Search predicates built by the precompiled field registry against the
+ * reflective builder it replaced ({@link ReflectiveSearchQuery}), for the
+ * same query: a contains match on {@code doctorname} and an equality on
+ * {@code patientid}. With {@code unknownParams}, the request also carries
+ * {@code page} and {@code size}, which are not fields and cost the
+ * reflective path an exception each. Run with {@code -prof gc} to see the
+ * allocation per search in {@code gc.alloc.rate.norm}.
+ * <p>
+ * The specification is handed to a {@link Blackhole} before it is applied,
+ * as the service hands it to a DAO. Without that, C2 could compile the
+ * construction and the application into one method and scalar-replace the
+ * garbage of whichever path happens to inline fully, which no request gets.
+ * <p>
+ * The reflective path printed each exception to standard output; that
+ * output is discarded while the benchmark runs, so only building the
+ * message is measured, not writing it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchFieldResolutionBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean unknownParams;
+
+    private final PatientDetailsUtil patientDetailsUtil = new PatientDetailsUtil();
+
+    private Map<String, String> registryParams;
+    private Map<String, String> reflectiveParams;
+    private StandardServiceRegistry registry;
+    private SessionFactory sessionFactory;
+    private CriteriaBuilder criteriaBuilder;
+    private PrintStream stdout;
+
+    @Setup
+    public void setUp() {
+        registryParams = new LinkedHashMap<>();
+        registryParams.put("doctorname", "contains:Dr A");
+        registryParams.put("patientid", "42");
+        reflectiveParams = new LinkedHashMap<>();
+        reflectiveParams.put("doctorname", "Dr A");
+        reflectiveParams.put("patientid", "42");
+        if (unknownParams) {
+            for (Map<String, String> params : List.of(registryParams, reflectiveParams)) {
+                params.put("page", "0");
+                params.put("size", "20");
+            }
+        }
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.OracleDialect")
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "none")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Appointment.class)
+                .addAnnotatedClass(Billingdetails.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        criteriaBuilder = sessionFactory.getCriteriaBuilder();
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Benchmark
+    public Predicate registry(Blackhole blackhole) {
+        return toPredicate(patientDetailsUtil.constructSearchQuery(registryParams, Appointment.class), blackhole);
+    }
+
+    @Benchmark
+    public Predicate reflective(Blackhole blackhole) {
+        return toPredicate(ReflectiveSearchQuery.constructSearchQuery(reflectiveParams, Appointment.class), blackhole);
+    }
+
+    private Predicate toPredicate(Specification<Appointment> specification, Blackhole blackhole) {
+        blackhole.consume(specification);
+        CriteriaQuery<Appointment> query = criteriaBuilder.createQuery(Appointment.class);
+        Root<Appointment> root = query.from(Appointment.class);
+        return specification.toPredicate(root, query, criteriaBuilder);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.geppetto.MediRecords.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.model.Billingdetails;
+import com.geppetto.MediRecords.util.PatientDetailsUtil;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Cost of turning search parameters into a specification, and of turning
+ * that specification into criteria predicates, for 1 to 4 parameters. The
+ * session factory is built without a database, which is all the criteria
+ * API needs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchQueryBenchmark {
+
+    private static final String[][] PARAMS = {
+            { "doctorname", "prefix:Dr A" },
+            { "patientid", "42" },
+            { "appointmentid", "between:100,200" },
+            { "id", "gte:01HZX000000000000000000000100" },
+    };
+
+    @Param({ "1", "2", "3", "4" })
+    public int paramCount;
+
+    private final PatientDetailsUtil patientDetailsUtil = new PatientDetailsUtil();
+
+    private Map<String, String> params;
+    private StandardServiceRegistry registry;
+    private SessionFactory sessionFactory;
+    private CriteriaBuilder criteriaBuilder;
+
+    @Setup
+    public void setUp() {
+        params = new LinkedHashMap<>();
+        for (int i = 0; i < paramCount; i++) {
+            params.put(PARAMS[i][0], PARAMS[i][1]);
+        }
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.OracleDialect")
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "none")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Appointment.class)
+                .addAnnotatedClass(Billingdetails.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        criteriaBuilder = sessionFactory.getCriteriaBuilder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Benchmark
+    public Specification<Appointment> constructSearchQuery() {
+        return patientDetailsUtil.constructSearchQuery(params, Appointment.class);
+    }
+
+    @Benchmark
+    public Predicate constructSearchQueryAndPredicate() {
+        Specification<Appointment> specification = patientDetailsUtil.constructSearchQuery(params, Appointment.class);
+        CriteriaQuery<Appointment> query = criteriaBuilder.createQuery(Appointment.class);
+        Root<Appointment> root = query.from(Appointment.class);
+        return specification.toPredicate(root, query, criteriaBuilder);
+    }
+
+}
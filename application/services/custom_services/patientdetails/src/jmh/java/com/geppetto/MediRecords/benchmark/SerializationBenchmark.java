@@ -0,0 +1,117 @@
+package com.geppetto.MediRecords.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.dto.BillingdetailsDto;
+import com.geppetto.MediRecords.util.PatientDetailsUtil;
+
+/**
+ * Cost of writing and reading response bodies with object mappers configured
+ * the way Spring MVC configures them, in each format a client can negotiate:
+ * a page of appointments as returned by the paged endpoint, and a large list
+ * of billingdetails as returned by search. The encoded size of each body is
+ * printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    /**
+     * The content section of a page, as a client reads it back.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class PageBody {
+        public List<AppointmentDto> content;
+    }
+
+    private static final TypeReference<List<BillingdetailsDto>> BILLINGDETAILS_LIST = new TypeReference<>() {
+    };
+
+    @Param({ "json", "cbor", "smile" })
+    public String format;
+
+    @Param({ "50", "500" })
+    public int pageSize;
+
+    @Param({ "10000" })
+    public int listSize;
+
+    private ObjectMapper objectMapper;
+
+    private Page<AppointmentDto> appointmentPage;
+    private List<BillingdetailsDto> billingdetailsList;
+    private byte[] appointmentPageBytes;
+    private byte[] billingdetailsListBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        PatientDetailsUtil patientDetailsUtil = new PatientDetailsUtil();
+        List<AppointmentDto> appointments = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            appointments.add(patientDetailsUtil.toDto(BenchmarkData.appointment(i)));
+        }
+        appointmentPage = new PageImpl<>(appointments, PageRequest.of(0, pageSize), 10_000);
+        billingdetailsList = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            billingdetailsList.add(patientDetailsUtil.toDto(BenchmarkData.billingdetails(i)));
+        }
+        appointmentPageBytes = objectMapper.writeValueAsBytes(appointmentPage);
+        billingdetailsListBytes = objectMapper.writeValueAsBytes(billingdetailsList);
+        System.out.printf("%n%s: appointment page of %d = %d bytes, billingdetails list of %d = %d bytes%n", format,
+                pageSize, appointmentPageBytes.length, listSize, billingdetailsListBytes.length);
+    }
+
+    @Benchmark
+    public void appointmentPage() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), appointmentPage);
+    }
+
+    @Benchmark
+    public void billingdetailsList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), billingdetailsList);
+    }
+
+    @Benchmark
+    public PageBody readAppointmentPage() throws IOException {
+        return objectMapper.readValue(appointmentPageBytes, PageBody.class);
+    }
+
+    @Benchmark
+    public List<BillingdetailsDto> readBillingdetailsList() throws IOException {
+        return objectMapper.readValue(billingdetailsListBytes, BILLINGDETAILS_LIST);
+    }
+
+}
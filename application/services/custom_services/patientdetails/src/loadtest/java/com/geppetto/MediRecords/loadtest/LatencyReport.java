@@ -0,0 +1,106 @@
+package com.geppetto.MediRecords.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Per-endpoint latency histograms and error counts. Latency is measured
+ * from the time a request was scheduled to be sent, not from when it was
+ * actually sent, so a stalled server shows up in the percentiles instead of
+ * silently lowering the request rate.
+ */
+class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final String TOTAL = "TOTAL";
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private double seconds;
+
+    void record(String endpoint, int status, long latencyNanos) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+        stats.histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        if (status < 200 || status >= 300) {
+            stats.errors.increment();
+        }
+    }
+
+    void recordFailure(String endpoint, long latencyNanos) {
+        record(endpoint, 0, latencyNanos);
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    void setMeasuredSeconds(double seconds) {
+        this.seconds = seconds;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-32s %10s %8s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms",
+                "p99 ms", "max ms");
+        rows().forEach((name, row) -> out.printf("%-32s %10d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n", name, row.count(),
+                row.errors(), row.count() / seconds, millis(row.histogram(), 50), millis(row.histogram(), 95),
+                millis(row.histogram(), 99), row.histogram().getMaxValue() / 1000.0));
+        out.printf("dropped (max in-flight reached): %d%n", dropped.sum());
+    }
+
+    void writeCsv(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("endpoint,requests,errors,rps,p50_ms,p95_ms,p99_ms,max_ms");
+            rows().forEach((name, row) -> writer.printf("%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f%n", name, row.count(),
+                    row.errors(), row.count() / seconds, millis(row.histogram(), 50), millis(row.histogram(), 95),
+                    millis(row.histogram(), 99), row.histogram().getMaxValue() / 1000.0));
+        }
+    }
+
+    private Map<String, Row> rows() {
+        Map<String, Row> rows = new TreeMap<>();
+        Map<String, Row> withTotal = new LinkedHashMap<>();
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Histogram copy = entry.getValue().histogram.copy();
+            long errors = entry.getValue().errors.sum();
+            rows.put(entry.getKey(), new Row(copy, errors));
+            total.add(copy);
+            totalErrors += errors;
+        }
+        withTotal.putAll(rows);
+        withTotal.put(TOTAL, new Row(total, totalErrors));
+        return withTotal;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static final class Endpoint {
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+    }
+
+    private record Row(Histogram histogram, long errors) {
+        long count() {
+            return histogram.getTotalCount();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.geppetto.MediRecords.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geppetto.MediRecords.MediRecords;
+import com.geppetto.MediRecords.index.DoctornameIndex;
+import com.geppetto.MediRecords.util.PatientDetailsUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Boots the service with the {@code loadtest} profile, loads the synthetic
+ * dataset, runs the workload and prints per-endpoint throughput and latency
+ * percentiles. The report is also written as CSV to
+ * {@code loadtest.report} so runs can be compared. Arguments are passed to
+ * Spring, so any setting, including the service's own, can be overridden
+ * with {@code --name=value}.
+ */
+@Slf4j
+public final class LoadTestHarness {
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        SyntheticDataset dataset = new SyntheticDataset();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MediRecords.class)
+                .profiles("loadtest")
+                .listeners(dataset)
+                .run(args);
+        int exitCode = 0;
+        try {
+            Environment environment = context.getEnvironment();
+            awaitDoctornameIndex(context.getBean(DoctornameIndex.class),
+                    environment.getProperty("medirecords.doctorname-index.enabled", Boolean.class, true));
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Workload workload = new Workload("http://localhost:" + port + "/patientdetails/", dataset,
+                    context.getBean(PatientDetailsUtil.class), context.getBean(ObjectMapper.class));
+            Map<String, Integer> mix = Binder.get(environment)
+                    .bind("loadtest.mix", Bindable.mapOf(String.class, Integer.class))
+                    .orElseThrow(() -> new IllegalStateException("loadtest.mix is not configured"));
+            LatencyReport report = workload.run(new LinkedHashMap<>(mix),
+                    environment.getProperty("loadtest.rate", Integer.class, 200),
+                    environment.getProperty("loadtest.warmup", Duration.class, Duration.ofSeconds(10)),
+                    environment.getProperty("loadtest.duration", Duration.class, Duration.ofSeconds(60)),
+                    environment.getProperty("loadtest.max-in-flight", Integer.class, 2000),
+                    environment.getProperty("loadtest.seed", Long.class, 42L));
+
+            report.print(System.out);
+            Path csv = Path.of(environment.getProperty("loadtest.report", "target/loadtest/report.csv"));
+            report.writeCsv(csv);
+            log.info("Wrote load test report to {}", csv.toAbsolutePath());
+        } catch (Exception e) {
+            log.error("Load test failed", e);
+            exitCode = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static void awaitDoctornameIndex(DoctornameIndex index, boolean enabled) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long deadline = System.nanoTime() + Duration.ofMinutes(10).toNanos();
+        while (!index.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+        }
+        if (!index.isReady()) {
+            log.warn("Doctorname index is not ready; substring searches will hit the database");
+        }
+    }
+
+}
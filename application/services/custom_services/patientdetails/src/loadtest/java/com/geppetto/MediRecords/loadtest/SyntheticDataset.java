@@ -0,0 +1,268 @@
+package com.geppetto.MediRecords.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import com.geppetto.MediRecords.util.IdGenerator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Generates and bulk-loads the synthetic appointment and billingdetails
+ * rows. Runs once the context is started but before it is ready, so the
+ * doctorname index loads the full dataset and no request sees a partial one.
+ *
+ * <p>Patient IDs follow a Zipf distribution with exponent
+ * {@code loadtest.patient-skew}: a few patients own a large share of the
+ * rows, as they do in production. The hot patients are spread over the ID
+ * range rather than being the lowest IDs. Every appointment gets a
+ * half-hour slot in the working hours of one of {@link #SCHEDULE_DAYS} days,
+ * so the doctor schedule has slots to check and search. A uniform sample of
+ * the loaded IDs is kept for point lookups and updates.</p>
+ *
+ * <p>Once the rows are in, the production index script
+ * ({@code loadtest.index-script}) is run, so searches use the same indexes
+ * as they do on Oracle. With {@code medirecords.replica.enabled}, the
+ * tables are then copied to the replica database.</p>
+ */
+@Slf4j
+class SyntheticDataset implements ApplicationListener<ApplicationStartedEvent> {
+
+    private static final String[] SURNAMES = { "Adams", "Baker", "Clarke", "Davies", "Evans", "Fischer", "Garcia",
+            "Hughes", "Iyer", "Jensen", "Khan", "Lopez", "Morgan", "Nakamura", "Okafor", "Patel", "Quinn", "Rossi",
+            "Schmidt", "Turner", "Ueda", "Varga", "Walsh", "Xu", "Young", "Zielinski" };
+    private static final String[] STATUSES = { "PAID", "PAID", "PAID", "PAID", "PAID", "PAID", "PAID", "PENDING",
+            "PENDING", "OVERDUE" };
+    private static final int BATCH_SIZE = 10_000;
+    private static final long PATIENT_STRIDE = 1_000_003L;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int SCHEDULE_DAYS = 30;
+    private static final int SLOTS_PER_DAY = 20;
+
+    private int patients;
+    private double[] patientCdf;
+    private String[] doctors;
+    private Sample appointmentSample;
+    private Sample billingdetailsSample;
+
+    @Override
+    public void onApplicationEvent(ApplicationStartedEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        int appointments = environment.getProperty("loadtest.appointments", Integer.class, 1_000_000);
+        int billingdetails = environment.getProperty("loadtest.billingdetails", Integer.class, 1_000_000);
+        int sampleSize = environment.getProperty("loadtest.sample-size", Integer.class, 10_000);
+        long seed = environment.getProperty("loadtest.seed", Long.class, 42L);
+        patients = environment.getProperty("loadtest.patients", Integer.class, 100_000);
+        patientCdf = zipfCdf(patients, environment.getProperty("loadtest.patient-skew", Double.class, 0.8));
+        doctors = doctorNames(environment.getProperty("loadtest.doctors", Integer.class, 500));
+
+        DataSource dataSource = event.getApplicationContext().getBean(DataSource.class);
+        IdGenerator idGenerator = event.getApplicationContext().getBean(IdGenerator.class);
+        SplittableRandom random = new SplittableRandom(seed);
+        appointmentSample = new Sample(sampleSize);
+        billingdetailsSample = new Sample(sampleSize);
+        try {
+            load(dataSource, "appointment", "insert into appointment (id, appointmentid, patientid, doctorname, starttime, endtime, version) values (?, ?, ?, ?, ?, ?, 0)",
+                    appointments, (statement, i) -> {
+                        String id = idGenerator.nextId();
+                        int patientid = patientId(random);
+                        statement.setString(1, id);
+                        statement.setInt(2, i);
+                        statement.setInt(3, patientid);
+                        statement.setString(4, doctor(random));
+                        LocalDateTime starttime = day(random).atTime(8, 0).plusMinutes(30L * random.nextInt(SLOTS_PER_DAY));
+                        statement.setTimestamp(5, Timestamp.valueOf(starttime));
+                        statement.setTimestamp(6, Timestamp.valueOf(starttime.plusMinutes(30)));
+                        appointmentSample.offer(random, i, id, patientid);
+                    });
+            load(dataSource, "billingdetails", "insert into billingdetails (id, billingid, patientid, paymentstatus, version) values (?, ?, ?, ?, 0)",
+                    billingdetails, (statement, i) -> {
+                        String id = idGenerator.nextId();
+                        int patientid = patientId(random);
+                        statement.setString(1, id);
+                        statement.setInt(2, i);
+                        statement.setInt(3, patientid);
+                        statement.setString(4, paymentStatus(random));
+                        billingdetailsSample.offer(random, i, id, patientid);
+                    });
+            createIndexes(dataSource, environment.getProperty("loadtest.index-script"));
+            if (event.getApplicationContext().containsBean("replicaDataSource")) {
+                copyToReplica(dataSource, event.getApplicationContext().getBean("replicaDataSource", DataSource.class));
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Loading the synthetic dataset failed", e);
+        }
+    }
+
+    private void createIndexes(DataSource dataSource, String script) throws SQLException {
+        if (script == null || script.isBlank()) {
+            return;
+        }
+        FileSystemResource resource = new FileSystemResource(script);
+        if (!resource.exists()) {
+            log.warn("Index script {} not found; searches will scan the tables", resource.getPath());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, resource);
+        }
+        log.info("Ran {} in {} ms", resource.getFilename(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Copies the loaded tables and indexes to the replica database. The copy
+     * is a snapshot: writes made during the run are not replicated, so the
+     * replica behaves like one that has fallen behind.
+     */
+    private void copyToReplica(DataSource dataSource, DataSource replica) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        Path script = Files.createTempFile("medirecords-replica", ".sql.gz");
+        try {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("script to '" + script + "' compression gzip");
+            }
+            try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("runscript from '" + script + "' compression gzip");
+            }
+        } finally {
+            Files.deleteIfExists(script);
+        }
+        log.info("Copied the dataset to the replica in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void load(DataSource dataSource, String table, String sql, int rows, RowWriter writer) throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                writer.write(statement, i);
+                statement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == rows - 1) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+                if ((i + 1) % 1_000_000 == 0) {
+                    log.info("Loaded {} {} rows", i + 1, table);
+                }
+            }
+        }
+        log.info("Loaded {} {} rows in {} ms", rows, table, System.currentTimeMillis() - start);
+    }
+
+    int patientId(SplittableRandom random) {
+        int rank = Arrays.binarySearch(patientCdf, random.nextDouble());
+        if (rank < 0) {
+            rank = Math.min(-rank - 1, patients - 1);
+        }
+        return (int) (rank * PATIENT_STRIDE % patients) + 1;
+    }
+
+    String doctor(SplittableRandom random) {
+        return doctors[random.nextInt(doctors.length)];
+    }
+
+    LocalDate day(SplittableRandom random) {
+        return FIRST_DAY.plusDays(random.nextInt(SCHEDULE_DAYS));
+    }
+
+    String paymentStatus(SplittableRandom random) {
+        return STATUSES[random.nextInt(STATUSES.length)];
+    }
+
+    Sample appointmentSample() {
+        return appointmentSample;
+    }
+
+    Sample billingdetailsSample() {
+        return billingdetailsSample;
+    }
+
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static String[] doctorNames(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "Dr " + (char) ('A' + i / SURNAMES.length % 26) + ". " + SURNAMES[i % SURNAMES.length]
+                    + (i >= SURNAMES.length * 26 ? "-" + i : "");
+        }
+        return names;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PreparedStatement statement, int i) throws SQLException;
+    }
+
+    /**
+     * Uniform reservoir sample of loaded rows. Only read once loading is done.
+     */
+    static final class Sample {
+
+        private final String[] ids;
+        private final int[] patientids;
+        private int size;
+
+        Sample(int capacity) {
+            ids = new String[capacity];
+            patientids = new int[capacity];
+        }
+
+        void offer(SplittableRandom random, int seen, String id, int patientid) {
+            int slot = seen < ids.length ? seen : random.nextInt(seen + 1);
+            if (slot < ids.length) {
+                ids[slot] = id;
+                patientids[slot] = patientid;
+                size = Math.min(seen + 1, ids.length);
+            }
+        }
+
+        int pick(SplittableRandom random) {
+            return random.nextInt(size);
+        }
+
+        String id(int index) {
+            return ids[index];
+        }
+
+        int patientid(int index) {
+            return patientids[index];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+    }
+
+}
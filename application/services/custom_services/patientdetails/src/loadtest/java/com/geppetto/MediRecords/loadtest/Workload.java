@@ -0,0 +1,311 @@
+package com.geppetto.MediRecords.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geppetto.MediRecords.util.PatientDetailsUtil;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open-model workload over the appointment and billingdetails endpoints.
+ * Requests are started at a fixed arrival rate whatever the server's
+ * response time, each on its own virtual thread, and the operation of each
+ * request is drawn from the configured mix. Deletes only target rows the
+ * workload created itself, so lookups and updates of the sampled rows keep
+ * finding them.
+ */
+@Slf4j
+class Workload {
+
+    private static final int BATCH_ITEMS = 20;
+
+    private final String baseUrl;
+    private final SyntheticDataset dataset;
+    private final PatientDetailsUtil patientDetailsUtil;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final Queue<String> createdAppointments = new ConcurrentLinkedQueue<>();
+    private final Queue<String> createdBillingdetails = new ConcurrentLinkedQueue<>();
+
+    Workload(String baseUrl, SyntheticDataset dataset, PatientDetailsUtil patientDetailsUtil, ObjectMapper objectMapper) {
+        this.baseUrl = baseUrl;
+        this.dataset = dataset;
+        this.patientDetailsUtil = patientDetailsUtil;
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        defineAppointmentOperations();
+        defineBillingdetailsOperations();
+    }
+
+    private void defineAppointmentOperations() {
+        SyntheticDataset.Sample sample = dataset.appointmentSample();
+        define("appointment.create", r -> post("appointment", appointment(r, null)), created(createdAppointments));
+        define("appointment.batch", r -> post("appointment/batch", batch(r, this::appointment)));
+        define("appointment.get", r -> get("appointment/" + sample.id(sample.pick(r))));
+        define("appointment.page", r -> get("appointment?size=20&page=" + r.nextInt(10)));
+        define("appointment.cursor", r -> get("appointment/cursor?size=50&cursor="
+                + patientDetailsUtil.encodeCursor(sample.id(sample.pick(r)))));
+        define("appointment.search", r -> get("appointment/search?patientid=" + dataset.patientId(r)));
+        define("appointment.search.contains", r -> get("appointment/search?doctorname="
+                + encode("contains:" + fragment(r, dataset.doctor(r)))));
+        define("appointment.slots", r -> get("appointment/slots?doctorname=" + encode(dataset.doctor(r))
+                + "&date=" + dataset.day(r)));
+        define("appointment.search.stream", r -> get("appointment/search/stream?patientid=" + dataset.patientId(r)));
+        define("appointment.searchUpdate", r -> send("GET", "appointment/searchUpdate", appointment(r, sample)));
+        define("appointment.update", r -> send("PUT", "appointment", appointment(r, sample)));
+        define("appointment.patch", r -> send("PATCH", "appointment/" + sample.id(sample.pick(r)),
+                Map.of("doctorname", dataset.doctor(r))));
+        define("appointment.delete", r -> delete("appointment/", createdAppointments));
+    }
+
+    private void defineBillingdetailsOperations() {
+        SyntheticDataset.Sample sample = dataset.billingdetailsSample();
+        define("billingdetails.create", r -> post("billingdetails", billingdetails(r, null)), created(createdBillingdetails));
+        define("billingdetails.batch", r -> post("billingdetails/batch", batch(r, this::billingdetails)));
+        define("billingdetails.get", r -> get("billingdetails/" + sample.id(sample.pick(r))));
+        define("billingdetails.page", r -> get("billingdetails?size=20&page=" + r.nextInt(10)));
+        define("billingdetails.cursor", r -> get("billingdetails/cursor?size=50&cursor="
+                + patientDetailsUtil.encodeCursor(sample.id(sample.pick(r)))));
+        define("billingdetails.search", r -> get("billingdetails/search?patientid=" + dataset.patientId(r)));
+        define("billingdetails.search.status", r -> get("billingdetails/search?paymentstatus=eq:"
+                + dataset.paymentStatus(r) + "&patientid=" + dataset.patientId(r)));
+        define("billingdetails.search.stream", r -> get("billingdetails/search/stream?patientid=" + dataset.patientId(r)));
+        define("billingdetails.searchUpdate", r -> send("GET", "billingdetails/searchUpdate", billingdetails(r, sample)));
+        define("billingdetails.update", r -> send("PUT", "billingdetails", billingdetails(r, sample)));
+        define("billingdetails.patch", r -> send("PATCH", "billingdetails/" + sample.id(sample.pick(r)),
+                Map.of("paymentstatus", dataset.paymentStatus(r))));
+        define("billingdetails.delete", r -> delete("billingdetails/", createdBillingdetails));
+    }
+
+    /**
+     * Runs the workload and returns the latencies of the requests started
+     * after the warm-up.
+     *
+     * @param mix The relative weight of each operation; operations not
+     * listed are not run.
+     * @param rate The number of requests started per second.
+     * @param warmup How long to run before recording.
+     * @param duration How long to record.
+     * @param maxInFlight Requests beyond this many outstanding are dropped
+     * and counted instead of sent.
+     * @param seed Seed for the choice of operations and their arguments.
+     */
+    LatencyReport run(Map<String, Integer> mix, int rate, Duration warmup, Duration duration, int maxInFlight, long seed)
+            throws InterruptedException {
+        List<Operation> wheel = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int totalWeight = 0;
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            Operation operation = operations.get(entry.getKey());
+            if (operation == null) {
+                throw new IllegalArgumentException("Unknown operation in loadtest.mix: " + entry.getKey()
+                        + ". Known operations: " + operations.keySet());
+            }
+            if (entry.getValue() > 0) {
+                totalWeight += entry.getValue();
+                wheel.add(operation);
+                cumulative.add(totalWeight);
+            }
+        }
+        if (wheel.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no operation with a positive weight");
+        }
+
+        LatencyReport report = new LatencyReport();
+        SplittableRandom random = new SplittableRandom(seed);
+        AtomicInteger inFlight = new AtomicInteger();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        log.info("Running workload at {} req/s: {} warm-up, {} measured", rate, warmup, duration);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long intended = start; intended < end; intended += interval) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                boolean measured = intended >= measureFrom;
+                if (inFlight.get() >= maxInFlight) {
+                    if (measured) {
+                        report.recordDropped();
+                    }
+                    continue;
+                }
+                Operation operation = pick(wheel, cumulative, totalWeight, random);
+                HttpRequest request = operation.request().apply(random);
+                for (int attempt = 0; request == null && attempt < 10; attempt++) {
+                    operation = pick(wheel, cumulative, totalWeight, random);
+                    request = operation.request().apply(random);
+                }
+                if (request == null) {
+                    continue;
+                }
+                Operation chosen = operation;
+                HttpRequest chosenRequest = request;
+                long scheduled = intended;
+                inFlight.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<byte[]> response = client.send(chosenRequest, HttpResponse.BodyHandlers.ofByteArray());
+                        if (measured) {
+                            report.record(chosen.name(), response.statusCode(), System.nanoTime() - scheduled);
+                        }
+                        chosen.onResponse().accept(response);
+                    } catch (IOException e) {
+                        if (measured) {
+                            report.recordFailure(chosen.name(), System.nanoTime() - scheduled);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+        report.setMeasuredSeconds(duration.toNanos() / 1e9);
+        return report;
+    }
+
+    private static Operation pick(List<Operation> wheel, List<Integer> cumulative, int totalWeight, SplittableRandom random) {
+        int ticket = random.nextInt(totalWeight);
+        for (int i = 0; i < wheel.size(); i++) {
+            if (ticket < cumulative.get(i)) {
+                return wheel.get(i);
+            }
+        }
+        return wheel.get(wheel.size() - 1);
+    }
+
+    private void define(String name, Function<SplittableRandom, HttpRequest> request) {
+        define(name, request, response -> {
+        });
+    }
+
+    private void define(String name, Function<SplittableRandom, HttpRequest> request,
+            Consumer<HttpResponse<byte[]>> onResponse) {
+        operations.put(name, new Operation(name, request, onResponse));
+    }
+
+    private Consumer<HttpResponse<byte[]>> created(Queue<String> ids) {
+        return response -> {
+            if (response.statusCode() == 200 || response.statusCode() == 202) {
+                try {
+                    JsonNode id = objectMapper.readTree(response.body()).get("id");
+                    if (id != null) {
+                        ids.add(id.asText());
+                    }
+                } catch (IOException e) {
+                    log.warn("Unreadable create response", e);
+                }
+            }
+        };
+    }
+
+    private Map<String, Object> appointment(SplittableRandom random, SyntheticDataset.Sample sample) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        int patientid = dataset.patientId(random);
+        if (sample != null) {
+            int index = sample.pick(random);
+            body.put("id", sample.id(index));
+            patientid = sample.patientid(index);
+        }
+        body.put("appointmentid", random.nextInt(1_000_000_000));
+        body.put("patientid", patientid);
+        body.put("doctorname", dataset.doctor(random));
+        return body;
+    }
+
+    private Map<String, Object> billingdetails(SplittableRandom random, SyntheticDataset.Sample sample) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        int patientid = dataset.patientId(random);
+        if (sample != null) {
+            int index = sample.pick(random);
+            body.put("id", sample.id(index));
+            patientid = sample.patientid(index);
+        }
+        body.put("billingid", random.nextInt(1_000_000_000));
+        body.put("patientid", patientid);
+        body.put("paymentstatus", dataset.paymentStatus(random));
+        return body;
+    }
+
+    private List<Map<String, Object>> batch(SplittableRandom random,
+            BiFunction<SplittableRandom, SyntheticDataset.Sample, Map<String, Object>> item) {
+        List<Map<String, Object>> items = new ArrayList<>(BATCH_ITEMS);
+        for (int i = 0; i < BATCH_ITEMS; i++) {
+            items.add(item.apply(random, null));
+        }
+        return items;
+    }
+
+    private static String fragment(SplittableRandom random, String doctorname) {
+        String surname = doctorname.substring(doctorname.lastIndexOf(' ') + 1);
+        int length = Math.min(surname.length(), 3 + random.nextInt(3));
+        int from = random.nextInt(surname.length() - length + 1);
+        return surname.substring(from, from + length).toLowerCase();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        return send("POST", path, body);
+    }
+
+    private HttpRequest delete(String path, Queue<String> created) {
+        String id = created.poll();
+        return id == null ? null : HttpRequest.newBuilder(URI.create(baseUrl + path + id)).DELETE().build();
+    }
+
+    private HttpRequest send(String method, String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Operation(String name, Function<SplittableRandom, HttpRequest> request,
+            Consumer<HttpResponse<byte[]>> onResponse) {
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.geppetto.MediRecords.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Lets clients exchange request and response bodies as CBOR
+ * ({@code application/cbor}) or Smile ({@code application/x-jackson-smile})
+ * instead of JSON, chosen by the {@code Accept} and {@code Content-Type}
+ * headers. Both are binary encodings of the same Jackson data model, so
+ * every DTO, list and page has the same shape as in JSON. The mappers are
+ * built from Spring Boot's builder and follow the {@code spring.jackson}
+ * settings. The converters replace the defaults Spring MVC registers after
+ * the JSON one, so JSON stays the default for clients that accept any type.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+
+}
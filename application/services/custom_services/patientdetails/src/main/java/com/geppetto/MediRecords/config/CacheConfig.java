@@ -0,0 +1,62 @@
+package com.geppetto.MediRecords.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.model.Billingdetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Read-through caches in front of the point lookups of the DAOs. Caffeine
+ * evicts with W-TinyLFU, so a small hot set (today's appointments, open
+ * bills) stays resident while one-off lookups are not admitted at its
+ * expense. Entries are bounded by count and by time since they were loaded,
+ * and the DAOs invalidate them on every update, patch and delete.
+ * Table row counts for paged listings are cached separately, keyed by
+ * table, for {@code medirecords.count.cache-ttl}.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${medirecords.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${medirecords.cache.expire-after-write:60s}")
+    private Duration expireAfterWrite;
+
+    @Value("${medirecords.count.cache-ttl:30s}")
+    private Duration countCacheTtl;
+
+    @Bean
+    public Cache<String, Long> rowCountCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(countCacheTtl)
+                .recordStats()
+                .build();
+    }
+
+    @Bean
+    public Cache<String, Appointment> appointmentCache() {
+        return newCache();
+    }
+
+    @Bean
+    public Cache<String, Billingdetails> billingdetailsCache() {
+        return newCache();
+    }
+
+    private <V> Cache<String, V> newCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.geppetto.MediRecords.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every public DAO method as {@code medirecords.dao}, tagged with the
+ * class, the method and whether it returned or threw. The timers are
+ * created once per method, so a call costs two {@link System#nanoTime()}
+ * reads and a map lookup. Runs inside the database bulkhead, so the time
+ * spent waiting for a permit is not included.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class DaoMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public DaoMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.geppetto.MediRecords.dao..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer[] methodTimers = timers.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(), this::newTimers);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            return result;
+        } finally {
+            methodTimers[success ? 0 : 1].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer[] newTimers(Method method) {
+        return new Timer[] { newTimer(method, "success"), newTimer(method, "error") };
+    }
+
+    private Timer newTimer(Method method, String outcome) {
+        return Timer.builder("medirecords.dao")
+                .description("Latency of DAO methods")
+                .tag("class", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+}
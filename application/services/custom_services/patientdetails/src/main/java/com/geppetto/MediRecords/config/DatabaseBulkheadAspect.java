@@ -0,0 +1,44 @@
+package com.geppetto.MediRecords.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.geppetto.MediRecords.util.DatabaseBulkhead;
+
+/**
+ * Puts every public DAO method, every repository method called directly by
+ * the services, and every {@code @Transactional} service method behind the
+ * {@link DatabaseBulkhead}. A service transaction holds its connection across
+ * all the DAO calls it makes, so the permit has to be taken at that outermost
+ * boundary; the DAO calls inside it reuse the permit of their thread.
+ * <p>
+ * The aspect has the highest precedence and the transaction advisor the
+ * lowest, so on every method matched here the permit is taken before the
+ * transaction borrows a connection and released only after it has been
+ * returned. A thread therefore never waits for a permit while holding a
+ * connection.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseBulkheadAspect {
+
+    private final DatabaseBulkhead databaseBulkhead;
+
+    public DatabaseBulkheadAspect(DatabaseBulkhead databaseBulkhead) {
+        this.databaseBulkhead = databaseBulkhead;
+    }
+
+    @Around("execution(public * com.geppetto.MediRecords.dao..*(..))"
+            + " || execution(* org.springframework.data.repository.Repository+.*(..))"
+            + " || (execution(public * com.geppetto.MediRecords.service..*(..))"
+            + " && @annotation(org.springframework.transaction.annotation.Transactional))")
+    public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+        return databaseBulkhead.call(joinPoint::proceed);
+    }
+
+}
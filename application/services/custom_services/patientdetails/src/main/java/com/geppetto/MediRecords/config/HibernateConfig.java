@@ -0,0 +1,26 @@
+package com.geppetto.MediRecords.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.geppetto.MediRecords.util.SqlStatementInspector;
+
+/**
+ * Hibernate settings that need an object rather than a property value.
+ */
+@Configuration
+public class HibernateConfig {
+
+    @Value("${medirecords.sql-log.sample-rate:0}")
+    private int sqlLogSampleRate;
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementInspectorCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new SqlStatementInspector(sqlLogSampleRate));
+    }
+
+}
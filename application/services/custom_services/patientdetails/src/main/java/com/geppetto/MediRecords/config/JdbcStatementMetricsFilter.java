@@ -0,0 +1,92 @@
+package com.geppetto.MediRecords.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.geppetto.MediRecords.util.JdbcStatementCounter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records how many SQL statements each request prepared, as the
+ * {@code medirecords.jdbc.statements} summary tagged with the HTTP method
+ * and URI template. Asynchronous requests, such as streamed searches, are
+ * recorded when they complete. The summaries are registered once per
+ * method and URI template and reused afterwards.
+ */
+@Component
+public class JdbcStatementMetricsFilter extends OncePerRequestFilter {
+
+    private record Route(String method, String uri) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Route, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public JdbcStatementMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicInteger counter = new AtomicInteger();
+        request.setAttribute(JdbcStatementCounter.REQUEST_ATTRIBUTE, counter);
+        AtomicInteger previous = JdbcStatementCounter.bind(counter);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            JdbcStatementCounter.bind(previous);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, counter);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, counter);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, AtomicInteger counter) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Route route = new Route(request.getMethod(), pattern != null ? pattern.toString() : "UNKNOWN");
+        summaries.computeIfAbsent(route, this::newSummary).record(counter.get());
+    }
+
+    private DistributionSummary newSummary(Route route) {
+        return DistributionSummary.builder("medirecords.jdbc.statements")
+                .description("SQL statements prepared per request")
+                .tag("method", route.method())
+                .tag("uri", route.uri())
+                .register(meterRegistry);
+    }
+
+}
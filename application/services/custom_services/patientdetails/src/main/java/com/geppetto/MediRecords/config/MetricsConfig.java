@@ -0,0 +1,90 @@
+package com.geppetto.MediRecords.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.index.BillingStatusCounts;
+import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.model.Billingdetails;
+import com.geppetto.MediRecords.util.DatabaseBulkhead;
+import com.geppetto.MediRecords.util.JdbcStatementCounter;
+import com.geppetto.MediRecords.util.WriteBehindWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Metrics that Spring Boot does not bind by itself. HTTP server requests and
+ * the Hikari pool are instrumented by Actuator; this adds the database
+ * bulkhead, the entity caches, the billing status count corrections, the
+ * appointment write-behind backlog and the per-request SQL statement count.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder databaseBulkheadMetrics(DatabaseBulkhead databaseBulkhead) {
+        return registry -> {
+            Gauge.builder("medirecords.bulkhead.available", databaseBulkhead, DatabaseBulkhead::getAvailablePermits)
+                    .description("Free database bulkhead permits")
+                    .register(registry);
+            Gauge.builder("medirecords.bulkhead.waiting", databaseBulkhead, DatabaseBulkhead::getWaiting)
+                    .description("Callers queued for a database bulkhead permit")
+                    .register(registry);
+            FunctionCounter.builder("medirecords.bulkhead.rejected", databaseBulkhead, DatabaseBulkhead::getRejected)
+                    .description("Calls rejected by the database bulkhead")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder entityCacheMetrics(Cache<String, Appointment> appointmentCache,
+            Cache<String, Billingdetails> billingdetailsCache, Cache<String, Long> rowCountCache) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, appointmentCache, "appointment");
+            CaffeineCacheMetrics.monitor(registry, billingdetailsCache, "billingdetails");
+            CaffeineCacheMetrics.monitor(registry, rowCountCache, "rowcount");
+        };
+    }
+
+    @Bean
+    public MeterBinder billingStatusCountsMetrics(BillingStatusCounts billingStatusCounts) {
+        return registry -> FunctionCounter.builder("medirecords.billing-counts.corrections", billingStatusCounts,
+                        BillingStatusCounts::getCorrections)
+                .description("Billing status counts corrected by reconciliation with the database")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder appointmentWriteBehindMetrics(WriteBehindWriter<AppointmentDto> appointmentWriteBehind) {
+        return registry -> {
+            Gauge.builder("medirecords.write-behind.pending", appointmentWriteBehind, WriteBehindWriter::getPending)
+                    .description("Accepted appointments not yet written to the database")
+                    .register(registry);
+            TimeGauge.builder("medirecords.write-behind.lag", appointmentWriteBehind, TimeUnit.SECONDS,
+                            WriteBehindWriter::getLagSeconds)
+                    .description("Age of the oldest appointment waiting to be written")
+                    .register(registry);
+            FunctionCounter.builder("medirecords.write-behind.flushed", appointmentWriteBehind, WriteBehindWriter::getFlushed)
+                    .description("Journaled appointments written to the database")
+                    .register(registry);
+            FunctionCounter.builder("medirecords.write-behind.rejected", appointmentWriteBehind, WriteBehindWriter::getRejected)
+                    .description("Journaled appointments the database refused")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public TaskDecorator jdbcStatementCounterTaskDecorator() {
+        return JdbcStatementCounter::wrap;
+    }
+
+}
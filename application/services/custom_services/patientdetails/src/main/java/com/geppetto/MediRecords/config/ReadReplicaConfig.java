@@ -0,0 +1,86 @@
+package com.geppetto.MediRecords.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Splits database access between the primary and a read replica when
+ * {@code medirecords.replica.enabled} is set. The primary pool is built from
+ * {@code spring.datasource}, as Spring Boot would build it, and the replica
+ * pool from {@code medirecords.replica}. Transactions marked
+ * {@code readOnly} are routed to the replica by
+ * {@link ReadWriteRoutingDataSource}; everything else, including schema
+ * generation and reads outside a transaction, uses the primary.
+ * <p>
+ * A replica serves reads only while its lag is known to be within
+ * {@code medirecords.replica.max-lag}, so the application refuses to start
+ * without a {@code medirecords.replica.lag-query}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "medirecords.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("medirecords.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties dataSourceProperties,
+            @Value("${medirecords.replica.url}") String url,
+            @Value("${medirecords.replica.username}") String username,
+            @Value("${medirecords.replica.password}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(dataSourceProperties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${medirecords.replica.max-lag:5s}") Duration maxLag,
+            @Value("${medirecords.replica.lag-query:}") String lagQuery,
+            @Value("${medirecords.replica.lag-check-interval:5s}") Duration lagCheckInterval,
+            @Value("${medirecords.replica.retry-interval:30s}") Duration retryInterval) {
+        if (lagQuery.isBlank()) {
+            throw new IllegalStateException("medirecords.replica.lag-query must be set when the read replica is enabled;"
+                    + " without it reads could be served from a replica any distance behind the primary");
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, maxLag, lagQuery,
+                lagCheckInterval, retryInterval);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+}
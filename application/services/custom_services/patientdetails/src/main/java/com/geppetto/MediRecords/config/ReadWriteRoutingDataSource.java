@@ -0,0 +1,173 @@
+package com.geppetto.MediRecords.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends connections for read-only transactions to the replica pool and all
+ * others to the primary. Reads fall back to the primary while the replica is
+ * unusable:
+ * <ul>
+ * <li>after it failed to hand out a connection, for
+ * {@code medirecords.replica.retry-interval};</li>
+ * <li>while the lag query reports it further behind than
+ * {@code medirecords.replica.max-lag}. The query runs every
+ * {@code medirecords.replica.lag-check-interval} and must return the lag in
+ * seconds. Until its first result, the replica counts as lagging.</li>
+ * </ul>
+ * The route is decided when a connection is taken, so this data source must
+ * be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * for the read-only flag of the transaction to be known by then.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final double maxLagSeconds;
+    private final long retryIntervalNanos;
+    private final String lagQuery;
+    private final ScheduledExecutorService lagMonitor;
+    private volatile long replicaDownSince;
+    private volatile boolean replicaDown;
+    private volatile boolean replicaLagging;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag, String lagQuery,
+            Duration lagCheckInterval, Duration retryInterval) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.lagQuery = lagQuery;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        if (lagQuery == null || lagQuery.isBlank()) {
+            lagMonitor = null;
+        } else {
+            replicaLagging = true;
+            lagMonitor = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "replica-lag-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = lagCheckInterval.toMillis();
+            lagMonitor.scheduleWithFixedDelay(this::checkLag, 0, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return useReplica() ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!useReplica()) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            markReplicaDown(e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!useReplica()) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return replica.getConnection(username, password);
+        } catch (SQLException e) {
+            markReplicaDown(e);
+            return primary.getConnection(username, password);
+        }
+    }
+
+    /**
+     * @return Whether reads are currently sent to the replica.
+     */
+    public boolean isReplicaUsable() {
+        if (replicaLagging) {
+            return false;
+        }
+        if (replicaDown) {
+            if (System.nanoTime() - replicaDownSince < retryIntervalNanos) {
+                return false;
+            }
+            replicaDown = false;
+            log.info("Retrying the read replica");
+        }
+        return true;
+    }
+
+    private boolean useReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && isReplicaUsable();
+    }
+
+    private void markReplicaDown(SQLException e) {
+        replicaDownSince = System.nanoTime();
+        if (!replicaDown) {
+            replicaDown = true;
+            log.warn("Read replica unavailable; reads go to the primary for the next {} ms: {}",
+                    TimeUnit.NANOSECONDS.toMillis(retryIntervalNanos), e.getMessage());
+        }
+    }
+
+    private void checkLag() {
+        try (Connection connection = replica.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            Double lag = null;
+            if (resultSet.next()) {
+                double value = resultSet.getDouble(1);
+                lag = resultSet.wasNull() ? null : value;
+            }
+            // an unknown lag counts as too far behind
+            boolean lagging = lag == null || lag > maxLagSeconds;
+            if (lagging != replicaLagging) {
+                if (lagging) {
+                    log.warn("Read replica is {} s behind; reads go to the primary", lag);
+                } else {
+                    log.info("Read replica caught up ({} s behind); reads go to the replica again", lag);
+                }
+            }
+            replicaLagging = lagging;
+        } catch (SQLException e) {
+            markReplicaDown(e);
+        } catch (RuntimeException e) {
+            log.error("Checking the read replica lag failed", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (lagMonitor != null) {
+            lagMonitor.shutdownNow();
+        }
+    }
+
+}
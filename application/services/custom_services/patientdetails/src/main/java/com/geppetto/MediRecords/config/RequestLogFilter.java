@@ -0,0 +1,107 @@
+package com.geppetto.MediRecords.config;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geppetto.MediRecords.util.JdbcStatementCounter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes one JSON line per request to the {@code medirecords.request}
+ * logger, for example:
+ *
+ * <pre>
+ * {"timestamp":"...","method":"GET","path":"/patientdetails/appointment/search",
+ *  "route":"/patientdetails/appointment/search","status":200,"duration_ms":4.2,"sql_statements":1}
+ * </pre>
+ *
+ * Asynchronous requests are logged when they complete. Actuator requests are
+ * not logged.
+ */
+@Component
+@ConditionalOnProperty(name = "medirecords.request-log.enabled", havingValue = "true", matchIfMissing = true)
+public class RequestLogFilter extends OncePerRequestFilter {
+
+    private static final Logger requestLog = LoggerFactory.getLogger("medirecords.request");
+
+    private final ObjectMapper objectMapper;
+
+    public RequestLogFilter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !requestLog.isInfoEnabled() || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response, start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, response, start);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, HttpServletResponse response, long start) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("timestamp", Instant.now().toString());
+        line.put("method", request.getMethod());
+        line.put("path", request.getRequestURI());
+        line.put("route", request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE));
+        line.put("status", response.getStatus());
+        line.put("duration_ms", (System.nanoTime() - start) / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        if (request.getAttribute(JdbcStatementCounter.REQUEST_ATTRIBUTE) instanceof AtomicInteger statements) {
+            line.put("sql_statements", statements.get());
+        }
+        try {
+            requestLog.info(objectMapper.writeValueAsString(line));
+        } catch (JsonProcessingException e) {
+            requestLog.warn("Could not write request log line", e);
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.geppetto.MediRecords.config;
+
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Runs request handling on virtual threads when
+ * {@code medirecords.virtual-threads.enabled} is set. Tomcat starts one
+ * virtual thread per request, and the application task executor that runs
+ * asynchronous MVC work (streamed responses) does the same. A request
+ * blocked on the database then parks its virtual thread instead of holding
+ * a platform thread; how many may use the database at once is left to the
+ * {@link com.geppetto.MediRecords.util.DatabaseBulkhead}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "medirecords.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ObjectProvider<TaskDecorator> taskDecorator) {
+        TaskExecutorAdapter executor = new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+        taskDecorator.ifAvailable(executor::setTaskDecorator);
+        return executor;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.geppetto.MediRecords.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.util.MappedJournal;
+import com.geppetto.MediRecords.util.WriteBehindWriter;
+
+/**
+ * Opt-in write-behind for appointment creation. With
+ * {@code medirecords.write-behind.enabled}, new appointments are journaled
+ * under {@code medirecords.write-behind.directory} and acknowledged before
+ * they reach the database. The journal directory has no default and must be
+ * an absolute path on a local disk that outlives the process, such as a
+ * mounted volume; a relative path would resolve inside the container and be
+ * lost with it. Otherwise the writer is inert and creates are written
+ * synchronously.
+ */
+@Configuration
+public class WriteBehindConfig {
+
+    @Value("${medirecords.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${medirecords.write-behind.directory:}")
+    private String directory;
+
+    @Value("${medirecords.write-behind.segment-size:16MB}")
+    private DataSize segmentSize;
+
+    @Value("${medirecords.write-behind.sync:true}")
+    private boolean sync;
+
+    @Value("${medirecords.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${medirecords.write-behind.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${medirecords.write-behind.flush-interval:100ms}")
+    private Duration flushInterval;
+
+    @Value("${medirecords.write-behind.flush-timeout:5s}")
+    private Duration flushTimeout;
+
+    @Bean
+    public WriteBehindWriter<AppointmentDto> appointmentWriteBehind(ObjectMapper objectMapper) throws IOException {
+        MappedJournal journal = enabled
+                ? new MappedJournal(journalDirectory().resolve("appointment"), Math.toIntExact(segmentSize.toBytes()), sync)
+                : null;
+        return new WriteBehindWriter<>("appointment", AppointmentDto.class, AppointmentDto::getId, objectMapper,
+                journal, batchSize, maxPending, flushInterval, flushTimeout);
+    }
+
+    private Path journalDirectory() {
+        if (directory.isBlank() || !Path.of(directory).isAbsolute()) {
+            throw new IllegalStateException("medirecords.write-behind.directory must be an absolute path on a persistent"
+                    + " volume when write-behind is enabled, but was '" + directory + "'; appointments acknowledged but"
+                    + " not yet written are lost with the journal");
+        }
+        return Path.of(directory);
+    }
+
+}
@@ -1,16 +1,39 @@
 package com.geppetto.MediRecords.controller;
 
 import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.dto.BatchResultDto;
+import com.geppetto.MediRecords.dto.CursorPageDto;
+import com.geppetto.MediRecords.dto.ImportJobDto;
+import com.geppetto.MediRecords.dto.TimeSlotDto;
 import com.geppetto.MediRecords.service.AppointmentService;
+import com.geppetto.MediRecords.util.ETags;
+import com.geppetto.MediRecords.util.ExportFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
-import org.springframework.data.domain.Page;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 
 /**
@@ -30,28 +53,134 @@ public class AppointmentController {
     @PostMapping
     public ResponseEntity<AppointmentDto> createAppointment(@Valid @RequestBody AppointmentDto appointmentDto) {
         log.info("Enter into createAppointment method");
-        ResponseEntity<AppointmentDto> response =  ResponseEntity.status(HttpStatus.OK).body(appointmentService.createAppointment(appointmentDto));
+        ResponseEntity<AppointmentDto> response;
+        if (appointmentService.isWriteBehindEnabled()) {
+            AppointmentDto accepted = appointmentService.enqueueAppointment(appointmentDto);
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/patientdetails/appointment/{id}")
+                    .buildAndExpand(accepted.getId())
+                    .toUri();
+            response = ResponseEntity.status(HttpStatus.ACCEPTED).location(location).body(accepted);
+        } else {
+            response =  ResponseEntity.status(HttpStatus.OK).body(appointmentService.createAppointment(appointmentDto));
+        }
         log.info("Exit from createAppointment method");
         return response;
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDto> createAppointmentBatch(@RequestBody List<AppointmentDto> appointmentDtos) {
+        log.info("Enter into createAppointmentBatch method");
+        ResponseEntity<BatchResultDto> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.createAppointmentBatch(appointmentDtos));
+        log.info("Exit from createAppointmentBatch method");
+        return response;
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobDto> importAppointment(@RequestParam("file") MultipartFile file) throws IOException {
+        log.info("Enter into importAppointment method");
+        ResponseEntity<ImportJobDto> response;
+        try (InputStream csv = file.getInputStream()) {
+            response = importAccepted(appointmentService.importAppointment(csv));
+        }
+        log.info("Exit from importAppointment method");
+        return response;
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportJobDto> importAppointmentCsv(InputStream csv) {
+        log.info("Enter into importAppointmentCsv method");
+        ResponseEntity<ImportJobDto> response = importAccepted(appointmentService.importAppointment(csv));
+        log.info("Exit from importAppointmentCsv method");
+        return response;
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobDto> getAppointmentImport(@PathVariable String jobId) {
+        log.info("Enter into getAppointmentImport method");
+        ResponseEntity<ImportJobDto> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.getAppointmentImport(jobId));
+        log.info("Exit from getAppointmentImport method");
+        return response;
+    }
+
+    @GetMapping("/import/{jobId}/rejects")
+    public ResponseEntity<Resource> getAppointmentImportRejects(@PathVariable String jobId) {
+        log.info("Enter into getAppointmentImportRejects method");
+        Resource rejects = appointmentService.getAppointmentImportRejects(jobId);
+        String filename = "appointment-import-" + jobId + "-rejects.csv";
+        ResponseEntity<Resource> response = ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(rejects);
+        log.info("Exit from getAppointmentImportRejects method");
+        return response;
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<AppointmentDto> getAppointmentById(@PathVariable String id) {
+    public ResponseEntity<AppointmentDto> getAppointmentById(@PathVariable String id, WebRequest request) {
         log.info("Enter into getAppointmentById method");
-        ResponseEntity<AppointmentDto> response =ResponseEntity.status(HttpStatus.OK).body(appointmentService.getAppointmentById(id));
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = ETags.of(appointmentService.getAppointmentVersion(id));
+            if (request.checkNotModified(eTag)) {
+                // checkNotModified has set the status and the ETag header
+                log.info("Exit from getAppointmentById method, not modified");
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+        }
+        AppointmentDto appointmentDto = appointmentService.getAppointmentById(id);
+        ResponseEntity<AppointmentDto> response = ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(appointmentDto.getVersion())).body(appointmentDto);
         log.info("Exit from getAppointmentById method");
         return response;
     }
 
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getAppointmentFieldsById(@PathVariable String id, @RequestParam String fields) {
+        log.info("Enter into getAppointmentFieldsById method");
+        ResponseEntity<Map<String, Object>> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.getAppointmentFieldsById(id, fields));
+        log.info("Exit from getAppointmentFieldsById method");
+        return response;
+    }
+
     @GetMapping
-    public ResponseEntity<Page<AppointmentDto>> getAllAppointment(@RequestParam(defaultValue = "0") int page,
-                                                  @RequestParam(defaultValue = "3") int size) {
+    public ResponseEntity<Slice<AppointmentDto>> getAllAppointment(@RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "3") int size,
+                                                  @RequestParam(required = false) String count) {
         log.info("Enter into getAllAppointment method");
-        Page<AppointmentDto>appointmentDtoPage = appointmentService.getAllAppointment(page, size);
+        Slice<AppointmentDto>appointmentDtoPage = appointmentService.getAllAppointment(page, size, count);
         log.info("Exit from getAllAppointment method");
+        return ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(appointmentDtoPage, AppointmentDto::getId, AppointmentDto::getVersion)).body(appointmentDtoPage);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<Slice<Map<String, Object>>> getAllAppointmentFields(@RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "3") int size,
+                                                  @RequestParam String fields,
+                                                  @RequestParam(required = false) String count) {
+        log.info("Enter into getAllAppointmentFields method");
+        Slice<Map<String, Object>> rowPage = appointmentService.getAllAppointmentFields(page, size, fields, count);
+        log.info("Exit from getAllAppointmentFields method");
+        return new ResponseEntity<>(rowPage, HttpStatus.OK);
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<AppointmentDto>> getAllAppointmentByCursor(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "50") int size) {
+        log.info("Enter into getAllAppointmentByCursor method");
+        CursorPageDto<AppointmentDto> appointmentDtoPage = appointmentService.getAllAppointmentByCursor(cursor, size);
+        log.info("Exit from getAllAppointmentByCursor method");
         return new ResponseEntity<>(appointmentDtoPage, HttpStatus.OK);
     }
 
+    @GetMapping("/slots")
+    public ResponseEntity<List<TimeSlotDto>> getFreeSlots(@RequestParam String doctorname,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                  @RequestParam(defaultValue = "15") int minutes) {
+        log.info("Enter into getFreeSlots method");
+        ResponseEntity<List<TimeSlotDto>> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.getFreeSlots(doctorname, date, minutes));
+        log.info("Exit from getFreeSlots method");
+        return response;
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<AppointmentDto>> searchAppointment(@RequestParam Map<String, String> allParams) {
         log.info("Enter into searchAppointment method");
@@ -60,28 +189,90 @@ public class AppointmentController {
         return response;
     }
 
+    @GetMapping(value = "/search", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> searchAppointmentFields(@RequestParam Map<String, String> allParams) {
+        log.info("Enter into searchAppointmentFields method");
+        ResponseEntity<List<Map<String, Object>>> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.searchAppointmentFields(allParams));
+        log.info("Exit from searchAppointmentFields method");
+        return response;
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchAppointment(@RequestParam Map<String, String> allParams) {
+        log.info("Enter into streamSearchAppointment method");
+        StreamingResponseBody body = outputStream -> appointmentService.streamSearchAppointment(allParams, outputStream);
+        log.info("Exit from streamSearchAppointment method");
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/export")
+    public void exportAppointment(@RequestParam Map<String, String> allParams,
+                                  @RequestParam(defaultValue = "false") boolean gzip,
+                                  HttpServletResponse response) {
+        log.info("Enter into exportAppointment method");
+        appointmentService.exportAppointment(allParams, format -> openExport(response, format, gzip));
+        log.info("Exit from exportAppointment method");
+    }
+
     @GetMapping("/searchUpdate")
     public ResponseEntity<AppointmentDto> searchForUpdateAppointment(@RequestBody AppointmentDto appointmentDto) {
         log.info("Enter into searchForUpdateAppointment method");
-        ResponseEntity<AppointmentDto> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.updateAppointment(appointmentDto));
+        ResponseEntity<AppointmentDto> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.updateAppointment(appointmentDto, null));
         log.info("Exit from searchForUpdateAppointment method");
         return response;
     }
 
     @PutMapping
-    public ResponseEntity<AppointmentDto> updateAppointment(@Valid @RequestBody AppointmentDto appointmentDto) {
+    public ResponseEntity<AppointmentDto> updateAppointment(@Valid @RequestBody AppointmentDto appointmentDto,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Enter into updateAppointment method");
-        ResponseEntity<AppointmentDto> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.updateAppointment(appointmentDto));
+        AppointmentDto updated = appointmentService.updateAppointment(appointmentDto, ETags.expectedVersion(ifMatch));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        if (updated.getVersion() != null) {
+            builder.eTag(ETags.of(updated.getVersion()));
+        }
+        ResponseEntity<AppointmentDto> response = builder.body(updated);
         log.info("Exit from updateAppointment method");
         return response;
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<String> patchAppointment(@PathVariable String id, @RequestBody Map<String, Object> changes,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Enter into patchAppointment method");
+        ResponseEntity<String> response = ResponseEntity.status(HttpStatus.OK).contentType(MediaType.TEXT_PLAIN).body(appointmentService.patchAppointment(id, changes, ETags.expectedVersion(ifMatch)));
+        log.info("Exit from patchAppointment method");
+        return response;
+    }
+
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteAppointment(@PathVariable String id) {
+    public ResponseEntity<String> deleteAppointment(@PathVariable String id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Enter into deleteAppointment method");
-        ResponseEntity<String> response = ResponseEntity.status(HttpStatus.OK).body(appointmentService.deleteAppointment(id));
+        ResponseEntity<String> response = ResponseEntity.status(HttpStatus.OK).contentType(MediaType.TEXT_PLAIN).body(appointmentService.deleteAppointment(id, ETags.expectedVersion(ifMatch)));
         log.info("Exit from deleteAppointment method");
         return response;
     }
 
+    private ResponseEntity<ImportJobDto> importAccepted(ImportJobDto job) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/patientdetails/appointment/import/{jobId}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).location(location).body(job);
+    }
+
+    private OutputStream openExport(HttpServletResponse response, ExportFormat format, boolean gzip) {
+        String filename = "appointment." + format.getToken() + (gzip ? ".gz" : "");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString());
+        try {
+            OutputStream outputStream = response.getOutputStream();
+            return gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
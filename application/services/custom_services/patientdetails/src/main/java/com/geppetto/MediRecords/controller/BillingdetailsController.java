@@ -1,16 +1,37 @@
 package com.geppetto.MediRecords.controller;
 
 import com.geppetto.MediRecords.dto.BillingdetailsDto;
+import com.geppetto.MediRecords.dto.BatchResultDto;
+import com.geppetto.MediRecords.dto.BillingStatusCountsDto;
+import com.geppetto.MediRecords.dto.CursorPageDto;
+import com.geppetto.MediRecords.dto.ImportJobDto;
 import com.geppetto.MediRecords.service.BillingdetailsService;
+import com.geppetto.MediRecords.util.ETags;
+import com.geppetto.MediRecords.util.ExportFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import org.springframework.data.domain.Page;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 
 /**
@@ -35,23 +56,118 @@ public class BillingdetailsController {
         return response;
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDto> createBillingdetailsBatch(@RequestBody List<BillingdetailsDto> billingdetailsDtos) {
+        log.info("Enter into createBillingdetailsBatch method");
+        ResponseEntity<BatchResultDto> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.createBillingdetailsBatch(billingdetailsDtos));
+        log.info("Exit from createBillingdetailsBatch method");
+        return response;
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobDto> importBillingdetails(@RequestParam("file") MultipartFile file) throws IOException {
+        log.info("Enter into importBillingdetails method");
+        ResponseEntity<ImportJobDto> response;
+        try (InputStream csv = file.getInputStream()) {
+            response = importAccepted(billingdetailsService.importBillingdetails(csv));
+        }
+        log.info("Exit from importBillingdetails method");
+        return response;
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportJobDto> importBillingdetailsCsv(InputStream csv) {
+        log.info("Enter into importBillingdetailsCsv method");
+        ResponseEntity<ImportJobDto> response = importAccepted(billingdetailsService.importBillingdetails(csv));
+        log.info("Exit from importBillingdetailsCsv method");
+        return response;
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobDto> getBillingdetailsImport(@PathVariable String jobId) {
+        log.info("Enter into getBillingdetailsImport method");
+        ResponseEntity<ImportJobDto> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.getBillingdetailsImport(jobId));
+        log.info("Exit from getBillingdetailsImport method");
+        return response;
+    }
+
+    @GetMapping("/import/{jobId}/rejects")
+    public ResponseEntity<Resource> getBillingdetailsImportRejects(@PathVariable String jobId) {
+        log.info("Enter into getBillingdetailsImportRejects method");
+        Resource rejects = billingdetailsService.getBillingdetailsImportRejects(jobId);
+        String filename = "billingdetails-import-" + jobId + "-rejects.csv";
+        ResponseEntity<Resource> response = ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(rejects);
+        log.info("Exit from getBillingdetailsImportRejects method");
+        return response;
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<BillingdetailsDto> getBillingdetailsById(@PathVariable String id) {
+    public ResponseEntity<BillingdetailsDto> getBillingdetailsById(@PathVariable String id, WebRequest request) {
         log.info("Enter into getBillingdetailsById method");
-        ResponseEntity<BillingdetailsDto> response =ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.getBillingdetailsById(id));
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            String eTag = ETags.of(billingdetailsService.getBillingdetailsVersion(id));
+            if (request.checkNotModified(eTag)) {
+                // checkNotModified has set the status and the ETag header
+                log.info("Exit from getBillingdetailsById method, not modified");
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+        }
+        BillingdetailsDto billingdetailsDto = billingdetailsService.getBillingdetailsById(id);
+        ResponseEntity<BillingdetailsDto> response = ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(billingdetailsDto.getVersion())).body(billingdetailsDto);
         log.info("Exit from getBillingdetailsById method");
         return response;
     }
 
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getBillingdetailsFieldsById(@PathVariable String id, @RequestParam String fields) {
+        log.info("Enter into getBillingdetailsFieldsById method");
+        ResponseEntity<Map<String, Object>> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.getBillingdetailsFieldsById(id, fields));
+        log.info("Exit from getBillingdetailsFieldsById method");
+        return response;
+    }
+
     @GetMapping
-    public ResponseEntity<Page<BillingdetailsDto>> getAllBillingdetails(@RequestParam(defaultValue = "0") int page,
-                                                  @RequestParam(defaultValue = "3") int size) {
+    public ResponseEntity<Slice<BillingdetailsDto>> getAllBillingdetails(@RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "3") int size,
+                                                  @RequestParam(required = false) String count) {
         log.info("Enter into getAllBillingdetails method");
-        Page<BillingdetailsDto>billingdetailsDtoPage = billingdetailsService.getAllBillingdetails(page, size);
+        Slice<BillingdetailsDto>billingdetailsDtoPage = billingdetailsService.getAllBillingdetails(page, size, count);
         log.info("Exit from getAllBillingdetails method");
+        return ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(billingdetailsDtoPage, BillingdetailsDto::getId, BillingdetailsDto::getVersion)).body(billingdetailsDtoPage);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<Slice<Map<String, Object>>> getAllBillingdetailsFields(@RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "3") int size,
+                                                  @RequestParam String fields,
+                                                  @RequestParam(required = false) String count) {
+        log.info("Enter into getAllBillingdetailsFields method");
+        Slice<Map<String, Object>> rowPage = billingdetailsService.getAllBillingdetailsFields(page, size, fields, count);
+        log.info("Exit from getAllBillingdetailsFields method");
+        return new ResponseEntity<>(rowPage, HttpStatus.OK);
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<BillingdetailsDto>> getAllBillingdetailsByCursor(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "50") int size) {
+        log.info("Enter into getAllBillingdetailsByCursor method");
+        CursorPageDto<BillingdetailsDto> billingdetailsDtoPage = billingdetailsService.getAllBillingdetailsByCursor(cursor, size);
+        log.info("Exit from getAllBillingdetailsByCursor method");
         return new ResponseEntity<>(billingdetailsDtoPage, HttpStatus.OK);
     }
 
+    @GetMapping("/counts")
+    public ResponseEntity<BillingStatusCountsDto> getBillingStatusCounts(@RequestParam(required = false) Integer patientid,
+                                                  @RequestParam(required = false) String groupBy) {
+        log.info("Enter into getBillingStatusCounts method");
+        ResponseEntity<BillingStatusCountsDto> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.getBillingStatusCounts(patientid, groupBy));
+        log.info("Exit from getBillingStatusCounts method");
+        return response;
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<BillingdetailsDto>> searchBillingdetails(@RequestParam Map<String, String> allParams) {
         log.info("Enter into searchBillingdetails method");
@@ -60,28 +176,90 @@ public class BillingdetailsController {
         return response;
     }
 
+    @GetMapping(value = "/search", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> searchBillingdetailsFields(@RequestParam Map<String, String> allParams) {
+        log.info("Enter into searchBillingdetailsFields method");
+        ResponseEntity<List<Map<String, Object>>> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.searchBillingdetailsFields(allParams));
+        log.info("Exit from searchBillingdetailsFields method");
+        return response;
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchBillingdetails(@RequestParam Map<String, String> allParams) {
+        log.info("Enter into streamSearchBillingdetails method");
+        StreamingResponseBody body = outputStream -> billingdetailsService.streamSearchBillingdetails(allParams, outputStream);
+        log.info("Exit from streamSearchBillingdetails method");
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/export")
+    public void exportBillingdetails(@RequestParam Map<String, String> allParams,
+                                  @RequestParam(defaultValue = "false") boolean gzip,
+                                  HttpServletResponse response) {
+        log.info("Enter into exportBillingdetails method");
+        billingdetailsService.exportBillingdetails(allParams, format -> openExport(response, format, gzip));
+        log.info("Exit from exportBillingdetails method");
+    }
+
     @GetMapping("/searchUpdate")
     public ResponseEntity<BillingdetailsDto> searchForUpdateBillingdetails(@RequestBody BillingdetailsDto billingdetailsDto) {
         log.info("Enter into searchForUpdateBillingdetails method");
-        ResponseEntity<BillingdetailsDto> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.updateBillingdetails(billingdetailsDto));
+        ResponseEntity<BillingdetailsDto> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.updateBillingdetails(billingdetailsDto, null));
         log.info("Exit from searchForUpdateBillingdetails method");
         return response;
     }
 
     @PutMapping
-    public ResponseEntity<BillingdetailsDto> updateBillingdetails(@Valid @RequestBody BillingdetailsDto billingdetailsDto) {
+    public ResponseEntity<BillingdetailsDto> updateBillingdetails(@Valid @RequestBody BillingdetailsDto billingdetailsDto,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Enter into updateBillingdetails method");
-        ResponseEntity<BillingdetailsDto> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.updateBillingdetails(billingdetailsDto));
+        BillingdetailsDto updated = billingdetailsService.updateBillingdetails(billingdetailsDto, ETags.expectedVersion(ifMatch));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        if (updated.getVersion() != null) {
+            builder.eTag(ETags.of(updated.getVersion()));
+        }
+        ResponseEntity<BillingdetailsDto> response = builder.body(updated);
         log.info("Exit from updateBillingdetails method");
         return response;
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<String> patchBillingdetails(@PathVariable String id, @RequestBody Map<String, Object> changes,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Enter into patchBillingdetails method");
+        ResponseEntity<String> response = ResponseEntity.status(HttpStatus.OK).contentType(MediaType.TEXT_PLAIN).body(billingdetailsService.patchBillingdetails(id, changes, ETags.expectedVersion(ifMatch)));
+        log.info("Exit from patchBillingdetails method");
+        return response;
+    }
+
     @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteBillingdetails(@PathVariable String id) {
+    public ResponseEntity<String> deleteBillingdetails(@PathVariable String id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Enter into deleteBillingdetails method");
-        ResponseEntity<String> response = ResponseEntity.status(HttpStatus.OK).body(billingdetailsService.deleteBillingdetails(id));
+        ResponseEntity<String> response = ResponseEntity.status(HttpStatus.OK).contentType(MediaType.TEXT_PLAIN).body(billingdetailsService.deleteBillingdetails(id, ETags.expectedVersion(ifMatch)));
         log.info("Exit from deleteBillingdetails method");
         return response;
     }
 
+    private ResponseEntity<ImportJobDto> importAccepted(ImportJobDto job) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/patientdetails/billingdetails/import/{jobId}")
+                .buildAndExpand(job.getId())
+                .toUri();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).location(location).body(job);
+    }
+
+    private OutputStream openExport(HttpServletResponse response, ExportFormat format, boolean gzip) {
+        String filename = "billingdetails." + format.getToken() + (gzip ? ".gz" : "");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString());
+        try {
+            OutputStream outputStream = response.getOutputStream();
+            return gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
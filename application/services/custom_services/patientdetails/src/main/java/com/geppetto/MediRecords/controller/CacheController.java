@@ -0,0 +1,34 @@
+package com.geppetto.MediRecords.controller;
+
+import com.geppetto.MediRecords.dto.CacheStatsDto;
+import com.geppetto.MediRecords.service.CacheService;
+import java.util.Map;
+import org.springframework.web.bind.annotation.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+
+/**
+* REST controller exposing the hit, miss and eviction statistics of the
+* read-through caches, for sizing them against the container memory limit.
+*/
+@RestController
+@RequestMapping("/patientdetails/cache")
+@RequiredArgsConstructor
+@Slf4j
+public class CacheController {
+
+    private final CacheService cacheService;
+
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, CacheStatsDto>> getCacheStats() {
+        log.info("Enter into getCacheStats method");
+        ResponseEntity<Map<String, CacheStatsDto>> response = ResponseEntity.status(HttpStatus.OK).body(cacheService.getCacheStats());
+        log.info("Exit from getCacheStats method");
+        return response;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.geppetto.MediRecords.controller;
+
+import com.geppetto.MediRecords.dto.PatientSummaryDto;
+import com.geppetto.MediRecords.service.PatientSummaryService;
+import org.springframework.web.bind.annotation.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+
+/**
+* REST controller for patient-level views that combine Appointment and
+* Billingdetails in a single response.
+*/
+@RestController
+@RequestMapping("/patientdetails/patients")
+@RequiredArgsConstructor
+@Slf4j
+public class PatientSummaryController {
+
+    private final PatientSummaryService patientSummaryService;
+
+
+    @GetMapping("/{patientid}/summary")
+    public ResponseEntity<PatientSummaryDto> getPatientSummary(@PathVariable int patientid) {
+        log.info("Enter into getPatientSummary method");
+        ResponseEntity<PatientSummaryDto> response = ResponseEntity.status(HttpStatus.OK).body(patientSummaryService.getPatientSummary(patientid));
+        log.info("Exit from getPatientSummary method");
+        return response;
+    }
+
+}
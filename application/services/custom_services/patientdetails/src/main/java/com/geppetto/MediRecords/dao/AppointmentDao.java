@@ -3,10 +3,39 @@ package com.geppetto.MediRecords.dao;
 import com.geppetto.MediRecords.repository.AppointmentRepository;
 
 import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.util.CountStrategy;
+import com.geppetto.MediRecords.util.TransactionUtil;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.HibernateHints;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
 
 /**
 * Implementation of the {@link AppointmentDao} interface.
@@ -15,14 +44,41 @@ import org.springframework.stereotype.Service;
 @Service
 public class AppointmentDao {
 
+    private static final String TABLE_NAME = "appointment";
+    private static final String COUNT_KEY = TABLE_NAME;
+    private static final String ESTIMATE_KEY = TABLE_NAME + ":estimated";
+
     private final AppointmentRepository appointmentRepository;
+    private final Cache<String, Appointment> appointmentCache;
+    private final Cache<String, Long> rowCountCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${medirecords.count.estimate-query:select num_rows from user_tables where table_name = upper(?1)}")
+    private String estimateQuery;
+
+    @Value("${medirecords.stream.fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${medirecords.stream.max-rows:100000}")
+    private int streamMaxRows;
+
+    @Value("${medirecords.export.fetch-size:5000}")
+    private int exportFetchSize;
+
     /**
      * Constructs a new {@code AppointmentDao} with the specified repository.
      *
      * @param appointmentRepository The repository used for accessing {@link Appointment} entities. Must not be {@code null}.
+     * @param appointmentCache The read-through cache for {@link #getAppointmentById(String)}. Must not be {@code null}.
+     * @param rowCountCache The cache for {@link #countAppointment(CountStrategy)}. Must not be {@code null}.
      */
-    public AppointmentDao(AppointmentRepository appointmentRepository) {
+    public AppointmentDao(AppointmentRepository appointmentRepository, Cache<String, Appointment> appointmentCache,
+            Cache<String, Long> rowCountCache) {
         this.appointmentRepository = appointmentRepository;
+        this.appointmentCache = appointmentCache;
+        this.rowCountCache = rowCountCache;
     }
 
     /**
@@ -32,49 +88,445 @@ public class AppointmentDao {
      * @return The created {@link Appointment} entity.
      */
     public Appointment createAppointment(Appointment appointment) {
-        return appointmentRepository.save(appointment);
+        Appointment createdAppointment = appointmentRepository.save(appointment);
+        TransactionUtil.afterCommit(() -> {
+            appointmentCache.invalidate(createdAppointment.getId());
+            rowCountCache.invalidate(COUNT_KEY);
+        });
+        return createdAppointment;
     }
 
 
     /**
-     * Retrieves appointment by its ID.
+     * Inserts a chunk of new appointment in one transaction. The entities are
+     * persisted rather than merged, so no SELECT is issued per row and
+     * Hibernate sends the INSERTs as a single JDBC batch on flush.
+     *
+     * @param appointmentList The {@link Appointment} entities to insert. Must not be {@code null}.
+     * @return The inserted {@link Appointment} entities.
+     */
+    @Transactional
+    public List<Appointment> createAppointmentBatch(List<Appointment> appointmentList) {
+        appointmentList.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        TransactionUtil.afterCommit(() -> {
+            appointmentList.forEach(appointment -> appointmentCache.invalidate(appointment.getId()));
+            rowCountCache.invalidate(COUNT_KEY);
+        });
+        return appointmentList;
+    }
+
+
+    /**
+     * Retrieves appointment by its ID, reading through the cache. Only hits are
+     * cached. Writes to the same ID invalidate the entry once they commit;
+     * an invalidation waits for an in-flight load of that ID and then
+     * removes it, so a stale row is never left behind. Misses are loaded
+     * from the primary even when a read replica is configured. Cached
+     * entities are shared and must be treated as read-only.
      *
      * @param id The ID of the appointment to retrieve. Must not be {@code null}.
      * @return An {@link Optional} containing the appointment if found, or an empty {@code Optional} if not.
      */
     public Optional<Appointment> getAppointmentById(String id) {
-        return appointmentRepository.findById(id);
+        return Optional.ofNullable(appointmentCache.get(id, key -> appointmentRepository.findById(key).orElse(null)));
+    }
+
+
+    /**
+     * Retrieves the version of appointment without loading the row: from the
+     * cache if it holds the row, otherwise with a query on the primary that
+     * selects the version column only.
+     *
+     * @param id The ID of the appointment. Must not be {@code null}.
+     * @return The version, or an empty {@code Optional} if no appointment has the given ID.
+     */
+    public Optional<Long> getAppointmentVersion(String id) {
+        Appointment cached = appointmentCache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached.getVersion());
+        }
+        return appointmentRepository.findVersionById(id);
+    }
+
+
+    /**
+     * Retrieves all appointment of a patient with an equality query on
+     * {@code patientid}.
+     *
+     * @param patientid The patient whose appointment to retrieve.
+     * @return A list of {@link Appointment} entities; empty if there are none.
+     */
+    public List<Appointment> getAppointmentByPatientid(int patientid) {
+        return appointmentRepository.findByPatientid(patientid);
+    }
+
+
+    /**
+     * Retrieves one page of appointment. One row past the page is read to learn
+     * whether another page follows; no count query is run.
+     *
+     * @param pageable The page and sort to apply.
+     * @return A {@link Slice} of {@link Appointment} entities.
+     */
+    public Slice<Appointment> getAllAppointment(Pageable pageable) {
+        return appointmentRepository.findAllBy(pageable);
+    }
+
+
+    /**
+     * Retrieves only the given fields of one page of appointment, without loading
+     * entities. No count query is run.
+     *
+     * @param fields The fields to select. Must not be empty.
+     * @param pageable The page and sort to apply.
+     * @return A {@link Slice} of maps keyed by field name in the order of {@code fields}.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> getAllAppointmentFields(List<String> fields, Pageable pageable) {
+        return ProjectionQuery.selectSlice(entityManager, Appointment.class, fields, null, pageable);
+    }
+
+
+    /**
+     * Retrieves one page of appointment by keyset: the rows whose ID sorts after
+     * {@code afterId}, in ID order. No count query is issued.
+     *
+     * @param afterId The last ID of the previous page, or {@code null} for the first page.
+     * @param pageable The page size and ID sort; the page number must be {@code 0}.
+     * @return A {@link Slice} of {@link Appointment} entities.
+     */
+    public Slice<Appointment> getAppointmentAfter(String afterId, Pageable pageable) {
+        if (afterId == null) {
+            return appointmentRepository.findAllBy(pageable);
+        }
+        return appointmentRepository.findByIdGreaterThan(afterId, pageable);
     }
 
 
-     /**
-     * Retrieves all appointment from the repository.
+    /**
+     * Retrieves only the given fields of the appointment matching a specification,
+     * without loading entities.
      *
-     * @return A list of all {@link Appointment} entities.
+     * @param specification The filter to apply, or {@code null} for all rows.
+     * @param fields The fields to select. Must not be empty.
+     * @param pageable The page and sort to apply; may be unpaged.
+     * @return One map per row, keyed by field name in the order of {@code fields}.
      */
-    public Page<Appointment> getAllAppointment(Pageable pageable) {
-        return appointmentRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAppointmentFields(Specification<Appointment> specification, List<String> fields,
+            Pageable pageable) {
+        return ProjectionQuery.select(entityManager, Appointment.class, fields, specification, pageable);
     }
 
 
     /**
-     * Retrieves appointment by its ID for update purposes.
+     * Retrieves only the given fields of appointment by its ID, without loading the
+     * entity. The entity cache is not consulted.
      *
      * @param id The ID of the appointment to retrieve. Must not be {@code null}.
+     * @param fields The fields to select. Must not be empty.
+     * @return An {@link Optional} containing the selected fields if found, or an empty {@code Optional} if not.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getAppointmentFieldsById(String id, List<String> fields) {
+        Specification<Appointment> byId = (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("id"), id);
+        return ProjectionQuery.select(entityManager, Appointment.class, fields, byId, Pageable.unpaged()).stream().findFirst();
+    }
+
+
+    /**
+     * Counts all appointment with the given strategy. A cached count is dropped
+     * once a row is inserted or deleted; an estimate is cached for the same
+     * time, since writes do not change optimizer statistics.
+     *
+     * @param strategy The count strategy; not {@link CountStrategy#NONE}.
+     * @return The number of appointment rows, or {@code null} if an estimate was
+     * requested and the table has no statistics.
+     */
+    public Long countAppointment(CountStrategy strategy) {
+        return switch (strategy) {
+            case EXACT -> appointmentRepository.count();
+            case CACHED -> rowCountCache.get(COUNT_KEY, key -> appointmentRepository.count());
+            case ESTIMATED -> rowCountCache.get(ESTIMATE_KEY, key -> estimateRowCount());
+            case NONE -> throw new IllegalArgumentException("no count for strategy " + strategy);
+        };
+    }
+
+    private Long estimateRowCount() {
+        Object estimate = entityManager.createNativeQuery(estimateQuery)
+                .setParameter(1, TABLE_NAME)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+        return estimate == null ? null : ((Number) estimate).longValue();
+    }
+
+
+    /**
+     * Streams the appointment matching a specification through a forward-only
+     * cursor. Rows are read {@code medirecords.stream.fetch-size} at a time,
+     * loaded read-only and detached once the consumer has handled them, so
+     * the persistence context never grows. At most
+     * {@code medirecords.stream.max-rows} rows are returned.
+     *
+     * @param specification The filter to apply. Must not be {@code null}.
+     * @param consumer Receives each matching {@link Appointment} in turn.
+     * @return The number of rows streamed.
+     */
+    @Transactional(readOnly = true)
+    public long streamAppointment(Specification<Appointment> specification, Consumer<Appointment> consumer) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Appointment> query = criteriaBuilder.createQuery(Appointment.class);
+        Root<Appointment> root = query.from(Appointment.class);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        long count = 0;
+        try (Stream<Appointment> rows = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setMaxResults(streamMaxRows)
+                .getResultStream()) {
+            for (Iterator<Appointment> iterator = rows.iterator(); iterator.hasNext(); count++) {
+                Appointment appointment = iterator.next();
+                consumer.accept(appointment);
+                entityManager.detach(appointment);
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Streams the ID and doctor name of every appointment through a
+     * forward-only cursor, without loading entities. Used to build in-memory
+     * indexes. The transaction is not read-only, so the rows come from the
+     * primary even when a read replica is configured: the index is kept
+     * current by writes to the primary, and a lagging replica would miss them.
+     *
+     * @param consumer Receives each {@code (id, doctorname)} pair in turn.
+     * @return The number of rows streamed.
+     */
+    @Transactional
+    public long streamAppointmentDoctornames(BiConsumer<String, String> consumer) {
+        long count = 0;
+        try (Stream<Object[]> rows = entityManager
+                .createQuery("select a.id, a.doctorname from Appointment a", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .getResultStream()) {
+            for (Iterator<Object[]> iterator = rows.iterator(); iterator.hasNext(); count++) {
+                Object[] row = iterator.next();
+                consumer.accept((String) row[0], (String) row[1]);
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Counts the appointments on the primary, bypassing the row count cache.
+     * Used to verify in-memory indexes against the table.
+     *
+     * @return The number of rows in the table.
+     */
+    @Transactional
+    public long countAppointmentRows() {
+        return appointmentRepository.count();
+    }
+
+
+    /**
+     * Streams the ID, doctor name, start and end time of every appointment
+     * that has a time slot through a forward-only cursor, without loading
+     * entities. Used to build the doctor schedule at startup.
+     *
+     * @param consumer Receives each {@code [id, doctorname, starttime, endtime]} row in turn.
+     * @return The number of rows streamed.
+     */
+    @Transactional(readOnly = true)
+    public long streamAppointmentSlots(Consumer<Object[]> consumer) {
+        long count = 0;
+        try (Stream<Object[]> rows = entityManager
+                .createQuery("select a.id, a.doctorname, a.starttime, a.endtime from Appointment a"
+                        + " where a.starttime is not null and a.endtime is not null", Object[].class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .getResultStream()) {
+            for (Iterator<Object[]> iterator = rows.iterator(); iterator.hasNext(); count++) {
+                consumer.accept(iterator.next());
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Finds an appointment of a doctor whose time slot overlaps the given one.
+     *
+     * @param doctorname The doctor.
+     * @param starttime The start of the slot.
+     * @param endtime The end of the slot, exclusive.
+     * @param exceptId The appointment the slot is for, which does not count.
+     * @return The ID of an overlapping appointment, or an empty {@code Optional} if there is none.
+     */
+    public Optional<String> findOverlappingAppointment(String doctorname, LocalDateTime starttime, LocalDateTime endtime,
+            String exceptId) {
+        return appointmentRepository.findOverlappingIds(doctorname, starttime, endtime, exceptId, Pageable.ofSize(1))
+                .stream()
+                .findFirst();
+    }
+
+
+    /**
+     * Retrieves the time slots of a doctor's appointments that overlap a period.
+     *
+     * @param doctorname The doctor.
+     * @param from The start of the period.
+     * @param to The end of the period, exclusive.
+     * @return One {@code [id, starttime, endtime]} row per appointment, in start order.
+     */
+    public List<Object[]> getAppointmentSlots(String doctorname, LocalDateTime from, LocalDateTime to) {
+        return appointmentRepository.findSlotsBetween(doctorname, from, to);
+    }
+
+
+    /**
+     * Reads appointment by its ID and locks the row until the surrounding
+     * transaction ends ({@code SELECT ... FOR UPDATE}), so the values read
+     * are the ones a following update in the same transaction replaces. The
+     * entity is detached before it is returned.
+     *
+     * @param id The ID of the appointment to lock. Must not be {@code null}.
      * @return An {@link Optional} containing the appointment if found, or an empty {@code Optional} if not.
      */
-    public Optional<Appointment> updateAppointment(String id) {
-        return appointmentRepository.findById(id);
+    public Optional<Appointment> lockAppointment(String id) {
+        Appointment appointment = entityManager.find(Appointment.class, id, LockModeType.PESSIMISTIC_WRITE);
+        if (appointment == null) {
+            return Optional.empty();
+        }
+        entityManager.detach(appointment);
+        return Optional.of(appointment);
+    }
+
+
+    /**
+     * Exports the given fields of every appointment matching a specification
+     * through one forward-only cursor, read {@code medirecords.export.fetch-size}
+     * rows at a time. The rows are selected in a stateless session on the
+     * transaction's connection, so nothing is cached or snapshotted and
+     * memory use does not grow with the number of rows.
+     *
+     * @param specification The filter to apply. Must not be {@code null}.
+     * @param fields The fields to select. Must not be empty.
+     * @param onOpen Runs once the query has been executed, before the first row.
+     * @param consumer Receives the values of each row, in the order of {@code fields}.
+     * @return The number of rows exported.
+     */
+    @Transactional(readOnly = true)
+    public long exportAppointment(Specification<Appointment> specification, List<String> fields, Runnable onOpen,
+            Consumer<Object[]> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        Connection connection = session.doReturningWork(jdbcConnection -> jdbcConnection);
+        long count = 0;
+        try (StatelessSession statelessSession = session.getSessionFactory().withStatelessOptions()
+                .connection(connection)
+                .openStatelessSession()) {
+            CriteriaBuilder criteriaBuilder = statelessSession.getCriteriaBuilder();
+            CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+            Root<Appointment> root = query.from(Appointment.class);
+            query.multiselect(fields.stream().<Selection<?>>map(root::get).toList());
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+            try (ScrollableResults<Object[]> rows = statelessSession.createQuery(query)
+                    .setFetchSize(exportFetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                onOpen.run();
+                for (; rows.next(); count++) {
+                    consumer.accept(rows.get());
+                }
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Overwrites all columns of existing appointment with a single
+     * {@code UPDATE ... WHERE id = ?}, without loading it first, and
+     * increments its version. With an expected version the {@code WHERE}
+     * clause also matches the version, so a concurrent update makes this
+     * one update nothing instead of being silently overwritten.
+     *
+     * @param appointment The {@link Appointment} holding the new column values. Must not be {@code null}.
+     * @param expectedVersion The version the row must still have, or {@code null} to update unconditionally.
+     * @return The number of rows updated; {@code 0} if no appointment has the given ID or version.
+     */
+    @Transactional
+    public int updateAppointmentById(Appointment appointment, Long expectedVersion) {
+        int updated = expectedVersion == null
+                ? appointmentRepository.updateById(appointment.getId(), appointment.getAppointmentid(), appointment.getPatientid(),
+                        appointment.getDoctorname(), appointment.getStarttime(), appointment.getEndtime())
+                : appointmentRepository.updateByIdAndVersion(appointment.getId(), appointment.getAppointmentid(), appointment.getPatientid(),
+                        appointment.getDoctorname(), appointment.getStarttime(), appointment.getEndtime(), expectedVersion);
+        if (updated > 0) {
+            TransactionUtil.afterCommit(() -> appointmentCache.invalidate(appointment.getId()));
+        }
+        return updated;
+    }
+
+
+    /**
+     * Updates only the given columns of existing appointment with a single
+     * {@code UPDATE ... WHERE id = ?} and increments its version.
+     *
+     * @param id The ID of the appointment to patch. Must not be {@code null}.
+     * @param values The new values keyed by field name. Must not be empty.
+     * @param expectedVersion The version the row must still have, or {@code null} to update unconditionally.
+     * @return The number of rows updated; {@code 0} if no appointment has the given ID or version.
+     */
+    @Transactional
+    public int patchAppointment(String id, Map<String, Object> values, Long expectedVersion) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Appointment> update = criteriaBuilder.createCriteriaUpdate(Appointment.class);
+        Root<Appointment> root = update.from(Appointment.class);
+        values.forEach((field, value) -> update.set(root.get(field), value));
+        Path<Long> version = root.get("version");
+        update.set(version, criteriaBuilder.sum(version, 1L));
+        Predicate where = criteriaBuilder.equal(root.get("id"), id);
+        if (expectedVersion != null) {
+            where = criteriaBuilder.and(where, criteriaBuilder.equal(version, expectedVersion));
+        }
+        update.where(where);
+        int updated = entityManager.createQuery(update).executeUpdate();
+        if (updated > 0) {
+            TransactionUtil.afterCommit(() -> appointmentCache.invalidate(id));
+        }
+        return updated;
     }
 
 
     /**
-     * Deletes appointment by its ID.
+     * Deletes appointment by its ID with a single {@code DELETE ... WHERE id = ?}.
      *
      * @param id The ID of the appointment to delete. Must not be {@code null}.
+     * @param expectedVersion The version the row must still have, or {@code null} to delete unconditionally.
+     * @return The number of rows deleted; {@code 0} if no appointment has the given ID and version.
      */
-    public void deleteAppointment(String id) {
-        appointmentRepository.deleteById(id);
+    public int deleteAppointment(String id, Long expectedVersion) {
+        int deleted = expectedVersion == null
+                ? appointmentRepository.removeById(id)
+                : appointmentRepository.removeByIdAndVersion(id, expectedVersion);
+        if (deleted > 0) {
+            TransactionUtil.afterCommit(() -> {
+                appointmentCache.invalidate(id);
+                rowCountCache.invalidate(COUNT_KEY);
+            });
+        }
+        return deleted;
     }
 
 
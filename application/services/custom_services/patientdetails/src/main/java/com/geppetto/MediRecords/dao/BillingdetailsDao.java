@@ -3,10 +3,36 @@ package com.geppetto.MediRecords.dao;
 import com.geppetto.MediRecords.repository.BillingdetailsRepository;
 
 import com.geppetto.MediRecords.model.Billingdetails;
+import com.geppetto.MediRecords.util.CountStrategy;
+import com.geppetto.MediRecords.util.TransactionUtil;
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.jpa.HibernateHints;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
 
 /**
 * Implementation of the {@link BillingdetailsDao} interface.
@@ -15,14 +41,41 @@ import org.springframework.stereotype.Service;
 @Service
 public class BillingdetailsDao {
 
+    private static final String TABLE_NAME = "billingdetails";
+    private static final String COUNT_KEY = TABLE_NAME;
+    private static final String ESTIMATE_KEY = TABLE_NAME + ":estimated";
+
     private final BillingdetailsRepository billingdetailsRepository;
+    private final Cache<String, Billingdetails> billingdetailsCache;
+    private final Cache<String, Long> rowCountCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${medirecords.count.estimate-query:select num_rows from user_tables where table_name = upper(?1)}")
+    private String estimateQuery;
+
+    @Value("${medirecords.stream.fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${medirecords.stream.max-rows:100000}")
+    private int streamMaxRows;
+
+    @Value("${medirecords.export.fetch-size:5000}")
+    private int exportFetchSize;
+
     /**
      * Constructs a new {@code BillingdetailsDao} with the specified repository.
      *
      * @param billingdetailsRepository The repository used for accessing {@link Billingdetails} entities. Must not be {@code null}.
+     * @param billingdetailsCache The read-through cache for {@link #getBillingdetailsById(String)}. Must not be {@code null}.
+     * @param rowCountCache The cache for {@link #countBillingdetails(CountStrategy)}. Must not be {@code null}.
      */
-    public BillingdetailsDao(BillingdetailsRepository billingdetailsRepository) {
+    public BillingdetailsDao(BillingdetailsRepository billingdetailsRepository, Cache<String, Billingdetails> billingdetailsCache,
+            Cache<String, Long> rowCountCache) {
         this.billingdetailsRepository = billingdetailsRepository;
+        this.billingdetailsCache = billingdetailsCache;
+        this.rowCountCache = rowCountCache;
     }
 
     /**
@@ -32,49 +85,362 @@ public class BillingdetailsDao {
      * @return The created {@link Billingdetails} entity.
      */
     public Billingdetails createBillingdetails(Billingdetails billingdetails) {
-        return billingdetailsRepository.save(billingdetails);
+        Billingdetails createdBillingdetails = billingdetailsRepository.save(billingdetails);
+        TransactionUtil.afterCommit(() -> {
+            billingdetailsCache.invalidate(createdBillingdetails.getId());
+            rowCountCache.invalidate(COUNT_KEY);
+        });
+        return createdBillingdetails;
     }
 
 
     /**
-     * Retrieves billingdetails by its ID.
+     * Inserts a chunk of new billingdetails in one transaction. The entities are
+     * persisted rather than merged, so no SELECT is issued per row and
+     * Hibernate sends the INSERTs as a single JDBC batch on flush.
+     *
+     * @param billingdetailsList The {@link Billingdetails} entities to insert. Must not be {@code null}.
+     * @return The inserted {@link Billingdetails} entities.
+     */
+    @Transactional
+    public List<Billingdetails> createBillingdetailsBatch(List<Billingdetails> billingdetailsList) {
+        billingdetailsList.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        TransactionUtil.afterCommit(() -> {
+            billingdetailsList.forEach(billingdetails -> billingdetailsCache.invalidate(billingdetails.getId()));
+            rowCountCache.invalidate(COUNT_KEY);
+        });
+        return billingdetailsList;
+    }
+
+
+    /**
+     * Retrieves billingdetails by its ID, reading through the cache. Only hits are
+     * cached. Writes to the same ID invalidate the entry once they commit;
+     * an invalidation waits for an in-flight load of that ID and then
+     * removes it, so a stale row is never left behind. Misses are loaded
+     * from the primary even when a read replica is configured. Cached
+     * entities are shared and must be treated as read-only.
      *
      * @param id The ID of the billingdetails to retrieve. Must not be {@code null}.
      * @return An {@link Optional} containing the billingdetails if found, or an empty {@code Optional} if not.
      */
     public Optional<Billingdetails> getBillingdetailsById(String id) {
-        return billingdetailsRepository.findById(id);
+        return Optional.ofNullable(billingdetailsCache.get(id, key -> billingdetailsRepository.findById(key).orElse(null)));
     }
 
 
-     /**
-     * Retrieves all billingdetails from the repository.
+    /**
+     * Retrieves the version of billingdetails without loading the row: from the
+     * cache if it holds the row, otherwise with a query on the primary that
+     * selects the version column only.
      *
-     * @return A list of all {@link Billingdetails} entities.
+     * @param id The ID of the billingdetails. Must not be {@code null}.
+     * @return The version, or an empty {@code Optional} if no billingdetails has the given ID.
      */
-    public Page<Billingdetails> getAllBillingdetails(Pageable pageable) {
-        return billingdetailsRepository.findAll(pageable);
+    public Optional<Long> getBillingdetailsVersion(String id) {
+        Billingdetails cached = billingdetailsCache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached.getVersion());
+        }
+        return billingdetailsRepository.findVersionById(id);
     }
 
 
     /**
-     * Retrieves billingdetails by its ID for update purposes.
+     * Retrieves all billingdetails of a patient with an equality query on
+     * {@code patientid}.
+     *
+     * @param patientid The patient whose billingdetails to retrieve.
+     * @return A list of {@link Billingdetails} entities; empty if there are none.
+     */
+    public List<Billingdetails> getBillingdetailsByPatientid(int patientid) {
+        return billingdetailsRepository.findByPatientid(patientid);
+    }
+
+
+    /**
+     * Retrieves one page of billingdetails. One row past the page is read to learn
+     * whether another page follows; no count query is run.
+     *
+     * @param pageable The page and sort to apply.
+     * @return A {@link Slice} of {@link Billingdetails} entities.
+     */
+    public Slice<Billingdetails> getAllBillingdetails(Pageable pageable) {
+        return billingdetailsRepository.findAllBy(pageable);
+    }
+
+
+    /**
+     * Retrieves only the given fields of one page of billingdetails, without loading
+     * entities. No count query is run.
+     *
+     * @param fields The fields to select. Must not be empty.
+     * @param pageable The page and sort to apply.
+     * @return A {@link Slice} of maps keyed by field name in the order of {@code fields}.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> getAllBillingdetailsFields(List<String> fields, Pageable pageable) {
+        return ProjectionQuery.selectSlice(entityManager, Billingdetails.class, fields, null, pageable);
+    }
+
+
+    /**
+     * Retrieves one page of billingdetails by keyset: the rows whose ID sorts after
+     * {@code afterId}, in ID order. No count query is issued.
+     *
+     * @param afterId The last ID of the previous page, or {@code null} for the first page.
+     * @param pageable The page size and ID sort; the page number must be {@code 0}.
+     * @return A {@link Slice} of {@link Billingdetails} entities.
+     */
+    public Slice<Billingdetails> getBillingdetailsAfter(String afterId, Pageable pageable) {
+        if (afterId == null) {
+            return billingdetailsRepository.findAllBy(pageable);
+        }
+        return billingdetailsRepository.findByIdGreaterThan(afterId, pageable);
+    }
+
+
+    /**
+     * Retrieves only the given fields of the billingdetails matching a specification,
+     * without loading entities.
+     *
+     * @param specification The filter to apply, or {@code null} for all rows.
+     * @param fields The fields to select. Must not be empty.
+     * @param pageable The page and sort to apply; may be unpaged.
+     * @return One map per row, keyed by field name in the order of {@code fields}.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getBillingdetailsFields(Specification<Billingdetails> specification, List<String> fields,
+            Pageable pageable) {
+        return ProjectionQuery.select(entityManager, Billingdetails.class, fields, specification, pageable);
+    }
+
+
+    /**
+     * Retrieves only the given fields of billingdetails by its ID, without loading the
+     * entity. The entity cache is not consulted.
      *
      * @param id The ID of the billingdetails to retrieve. Must not be {@code null}.
-     * @return An {@link Optional} containing the billingdetails if found, or an empty {@code Optional} if not.
+     * @param fields The fields to select. Must not be empty.
+     * @return An {@link Optional} containing the selected fields if found, or an empty {@code Optional} if not.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getBillingdetailsFieldsById(String id, List<String> fields) {
+        Specification<Billingdetails> byId = (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("id"), id);
+        return ProjectionQuery.select(entityManager, Billingdetails.class, fields, byId, Pageable.unpaged()).stream().findFirst();
+    }
+
+
+    /**
+     * Counts all billingdetails with the given strategy. A cached count is dropped
+     * once a row is inserted or deleted; an estimate is cached for the same
+     * time, since writes do not change optimizer statistics.
+     *
+     * @param strategy The count strategy; not {@link CountStrategy#NONE}.
+     * @return The number of billingdetails rows, or {@code null} if an estimate was
+     * requested and the table has no statistics.
+     */
+    public Long countBillingdetails(CountStrategy strategy) {
+        return switch (strategy) {
+            case EXACT -> billingdetailsRepository.count();
+            case CACHED -> rowCountCache.get(COUNT_KEY, key -> billingdetailsRepository.count());
+            case ESTIMATED -> rowCountCache.get(ESTIMATE_KEY, key -> estimateRowCount());
+            case NONE -> throw new IllegalArgumentException("no count for strategy " + strategy);
+        };
+    }
+
+    private Long estimateRowCount() {
+        Object estimate = entityManager.createNativeQuery(estimateQuery)
+                .setParameter(1, TABLE_NAME)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+        return estimate == null ? null : ((Number) estimate).longValue();
+    }
+
+
+    /**
+     * Streams the billingdetails matching a specification through a forward-only
+     * cursor. Rows are read {@code medirecords.stream.fetch-size} at a time,
+     * loaded read-only and detached once the consumer has handled them, so
+     * the persistence context never grows. At most
+     * {@code medirecords.stream.max-rows} rows are returned.
+     *
+     * @param specification The filter to apply. Must not be {@code null}.
+     * @param consumer Receives each matching {@link Billingdetails} in turn.
+     * @return The number of rows streamed.
+     */
+    @Transactional(readOnly = true)
+    public long streamBillingdetails(Specification<Billingdetails> specification, Consumer<Billingdetails> consumer) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Billingdetails> query = criteriaBuilder.createQuery(Billingdetails.class);
+        Root<Billingdetails> root = query.from(Billingdetails.class);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        long count = 0;
+        try (Stream<Billingdetails> rows = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setMaxResults(streamMaxRows)
+                .getResultStream()) {
+            for (Iterator<Billingdetails> iterator = rows.iterator(); iterator.hasNext(); count++) {
+                Billingdetails billingdetails = iterator.next();
+                consumer.accept(billingdetails);
+                entityManager.detach(billingdetails);
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Exports the given fields of every billingdetails matching a specification
+     * through one forward-only cursor, read {@code medirecords.export.fetch-size}
+     * rows at a time. The rows are selected in a stateless session on the
+     * transaction's connection, so nothing is cached or snapshotted and
+     * memory use does not grow with the number of rows.
+     *
+     * @param specification The filter to apply. Must not be {@code null}.
+     * @param fields The fields to select. Must not be empty.
+     * @param onOpen Runs once the query has been executed, before the first row.
+     * @param consumer Receives the values of each row, in the order of {@code fields}.
+     * @return The number of rows exported.
+     */
+    @Transactional(readOnly = true)
+    public long exportBillingdetails(Specification<Billingdetails> specification, List<String> fields, Runnable onOpen,
+            Consumer<Object[]> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        Connection connection = session.doReturningWork(jdbcConnection -> jdbcConnection);
+        long count = 0;
+        try (StatelessSession statelessSession = session.getSessionFactory().withStatelessOptions()
+                .connection(connection)
+                .openStatelessSession()) {
+            CriteriaBuilder criteriaBuilder = statelessSession.getCriteriaBuilder();
+            CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+            Root<Billingdetails> root = query.from(Billingdetails.class);
+            query.multiselect(fields.stream().<Selection<?>>map(root::get).toList());
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+            try (ScrollableResults<Object[]> rows = statelessSession.createQuery(query)
+                    .setFetchSize(exportFetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                onOpen.run();
+                for (; rows.next(); count++) {
+                    consumer.accept(rows.get());
+                }
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Counts billingdetails per {@code patientid} and {@code paymentstatus}
+     * with one {@code GROUP BY} over the table. The transaction is not
+     * read-only, so the count comes from the primary even when a read
+     * replica is configured: the counters it seeds and reconciles are
+     * updated by writes to the primary, and a lagging replica would undo them.
+     *
+     * @return One {@code [patientid, paymentstatus, count]} row per group.
+     */
+    @Transactional
+    public List<Object[]> countBillingdetailsByPatientidAndPaymentstatus() {
+        return billingdetailsRepository.countGroupByPatientidAndPaymentstatus();
+    }
+
+
+    /**
+     * Counts billingdetails per {@code paymentstatus}, of all patients or of one.
+     *
+     * @param patientid The patient whose billingdetails to count, or {@code null} for all.
+     * @return One {@code [paymentstatus, count]} row per status.
+     */
+    public List<Object[]> countBillingdetailsByPaymentstatus(Integer patientid) {
+        return patientid == null
+                ? billingdetailsRepository.countGroupByPaymentstatus()
+                : billingdetailsRepository.countGroupByPaymentstatus(patientid);
+    }
+
+
+    /**
+     * Overwrites all columns of existing billingdetails with a single
+     * {@code UPDATE ... WHERE id = ?}, without loading it first, and
+     * increments its version. With an expected version the {@code WHERE}
+     * clause also matches the version, so a concurrent update makes this
+     * one update nothing instead of being silently overwritten.
+     *
+     * @param billingdetails The {@link Billingdetails} holding the new column values. Must not be {@code null}.
+     * @param expectedVersion The version the row must still have, or {@code null} to update unconditionally.
+     * @return The number of rows updated; {@code 0} if no billingdetails has the given ID or version.
+     */
+    @Transactional
+    public int updateBillingdetailsById(Billingdetails billingdetails, Long expectedVersion) {
+        int updated = expectedVersion == null
+                ? billingdetailsRepository.updateById(billingdetails.getId(), billingdetails.getBillingid(), billingdetails.getPatientid(),
+                        billingdetails.getPaymentstatus())
+                : billingdetailsRepository.updateByIdAndVersion(billingdetails.getId(), billingdetails.getBillingid(), billingdetails.getPatientid(),
+                        billingdetails.getPaymentstatus(), expectedVersion);
+        if (updated > 0) {
+            TransactionUtil.afterCommit(() -> billingdetailsCache.invalidate(billingdetails.getId()));
+        }
+        return updated;
+    }
+
+
+    /**
+     * Updates only the given columns of existing billingdetails with a single
+     * {@code UPDATE ... WHERE id = ?} and increments its version.
+     *
+     * @param id The ID of the billingdetails to patch. Must not be {@code null}.
+     * @param values The new values keyed by field name. Must not be empty.
+     * @param expectedVersion The version the row must still have, or {@code null} to update unconditionally.
+     * @return The number of rows updated; {@code 0} if no billingdetails has the given ID or version.
      */
-    public Optional<Billingdetails> updateBillingdetails(String id) {
-        return billingdetailsRepository.findById(id);
+    @Transactional
+    public int patchBillingdetails(String id, Map<String, Object> values, Long expectedVersion) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Billingdetails> update = criteriaBuilder.createCriteriaUpdate(Billingdetails.class);
+        Root<Billingdetails> root = update.from(Billingdetails.class);
+        values.forEach((field, value) -> update.set(root.get(field), value));
+        Path<Long> version = root.get("version");
+        update.set(version, criteriaBuilder.sum(version, 1L));
+        Predicate where = criteriaBuilder.equal(root.get("id"), id);
+        if (expectedVersion != null) {
+            where = criteriaBuilder.and(where, criteriaBuilder.equal(version, expectedVersion));
+        }
+        update.where(where);
+        int updated = entityManager.createQuery(update).executeUpdate();
+        if (updated > 0) {
+            TransactionUtil.afterCommit(() -> billingdetailsCache.invalidate(id));
+        }
+        return updated;
     }
 
 
     /**
-     * Deletes billingdetails by its ID.
+     * Deletes billingdetails by its ID with a single {@code DELETE ... WHERE id = ?}.
      *
      * @param id The ID of the billingdetails to delete. Must not be {@code null}.
+     * @param expectedVersion The version the row must still have, or {@code null} to delete unconditionally.
+     * @return The number of rows deleted; {@code 0} if no billingdetails has the given ID and version.
      */
-    public void deleteBillingdetails(String id) {
-        billingdetailsRepository.deleteById(id);
+    public int deleteBillingdetails(String id, Long expectedVersion) {
+        int deleted = expectedVersion == null
+                ? billingdetailsRepository.removeById(id)
+                : billingdetailsRepository.removeByIdAndVersion(id, expectedVersion);
+        if (deleted > 0) {
+            TransactionUtil.afterCommit(() -> {
+                billingdetailsCache.invalidate(id);
+                rowCountCache.invalidate(COUNT_KEY);
+            });
+        }
+        return deleted;
     }
 
 
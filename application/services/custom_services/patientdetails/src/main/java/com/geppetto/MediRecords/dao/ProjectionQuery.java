@@ -0,0 +1,111 @@
+package com.geppetto.MediRecords.dao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Builds projection queries that select only the requested columns of an
+ * entity. Rows come back as tuples and are copied into plain maps, so no
+ * entity is instantiated, nothing enters the persistence context and there
+ * is nothing to dirty-check at flush.
+ */
+final class ProjectionQuery {
+
+    private ProjectionQuery() {
+    }
+
+    /**
+     * Selects the given fields of the rows matching a specification.
+     *
+     * @param entityManager The entity manager to query with.
+     * @param entityClass The entity to select from.
+     * @param fields The fields to select; validated by the caller.
+     * @param specification The filter to apply, or {@code null} for all rows.
+     * @param pageable The page and sort to apply; may be unpaged.
+     * @return One map per row, keyed by field name in the order of {@code fields}.
+     */
+    static <T> List<Map<String, Object>> select(EntityManager entityManager, Class<T> entityClass, List<String> fields,
+            Specification<T> specification, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return select(entityManager, entityClass, fields, specification, pageable.getSort(), 0, -1);
+        }
+        return select(entityManager, entityClass, fields, specification, pageable.getSort(), pageable.getOffset(),
+                pageable.getPageSize());
+    }
+
+    /**
+     * Selects the given fields of one page of rows, reading one row past the
+     * page to learn whether another page follows. No count query is run.
+     *
+     * @param entityManager The entity manager to query with.
+     * @param entityClass The entity to select from.
+     * @param fields The fields to select; validated by the caller.
+     * @param specification The filter to apply, or {@code null} for all rows.
+     * @param pageable The page and sort to apply. Must be paged.
+     * @return A {@link Slice} of maps keyed by field name in the order of {@code fields}.
+     */
+    static <T> Slice<Map<String, Object>> selectSlice(EntityManager entityManager, Class<T> entityClass,
+            List<String> fields, Specification<T> specification, Pageable pageable) {
+        List<Map<String, Object>> rows = select(entityManager, entityClass, fields, specification, pageable.getSort(),
+                pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private static <T> List<Map<String, Object>> select(EntityManager entityManager, Class<T> entityClass,
+            List<String> fields, Specification<T> specification, Sort sort, long offset, int maxResults) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        query.multiselect(selections);
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (maxResults >= 0) {
+            typedQuery.setFirstResult((int) offset);
+            typedQuery.setMaxResults(maxResults);
+        }
+        List<Tuple> tuples = typedQuery.getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>(fields.size() * 4 / 3 + 1);
+            for (int i = 0; i < fields.size(); i++) {
+                row.put(fields.get(i), tuple.get(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+}
@@ -1,5 +1,10 @@
 package com.geppetto.MediRecords.dto;
 
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -13,7 +18,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class AppointmentDto {
 
-    @NotBlank(message = "id cannot be null or empty")
+    /**
+     * Optional on create: when omitted, a time-ordered ID is generated by the
+     * server. Required on update.
+     */
     private String id;
      
     @NotNull(message = "appointmentid cannot be null or empty")  
@@ -24,5 +32,28 @@ public class AppointmentDto {
    
     @NotBlank(message = "doctorname cannot be null or empty")  
     private String doctorname;
+
+    /**
+     * Optional. When given, {@code endtime} is required too, and no other
+     * appointment of the same doctor may overlap the slot.
+     */
+    private LocalDateTime starttime;
+
+    private LocalDateTime endtime;
+
+    /**
+     * Set by the server and returned as the entity tag; ignored on create
+     * and update, where {@code If-Match} carries the expected version.
+     */
+    private Long version;
+
+    @JsonIgnore
+    @AssertTrue(message = "starttime and endtime must be given together, with endtime after starttime")
+    public boolean isTimeSlotValid() {
+        if (starttime == null || endtime == null) {
+            return starttime == null && endtime == null;
+        }
+        return endtime.isAfter(starttime);
+    }
   
 }
@@ -0,0 +1,28 @@
+package com.geppetto.MediRecords.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDto {
+
+    public enum Status {
+        CREATED,
+        REJECTED,
+        FAILED
+    }
+
+    private int index;
+
+    private String id;
+
+    private Status status;
+
+    private String message;
+
+}
@@ -0,0 +1,26 @@
+package com.geppetto.MediRecords.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResultDto {
+
+    private int total;
+
+    private int created;
+
+    private int rejected;
+
+    private int failed;
+
+    private List<BatchItemResultDto> items;
+
+}
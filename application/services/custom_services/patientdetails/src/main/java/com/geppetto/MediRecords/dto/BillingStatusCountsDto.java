@@ -0,0 +1,38 @@
+package com.geppetto.MediRecords.dto;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BillingStatusCountsDto {
+
+    /**
+     * The patient counted, or {@code null} for all patients.
+     */
+    private Integer patientid;
+
+    private long total;
+
+    /**
+     * Number of billingdetails per {@code paymentstatus}; rows without a
+     * status are counted under the empty status.
+     */
+    private Map<String, Long> byPaymentstatus;
+
+    /**
+     * Number of billingdetails per {@code patientid} and {@code paymentstatus};
+     * only present when grouped by patient.
+     */
+    private Map<Integer, Map<String, Long>> byPatientid;
+
+}
@@ -13,7 +13,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class BillingdetailsDto {
 
-    @NotBlank(message = "id cannot be null or empty")
+    /**
+     * Optional on create: when omitted, a time-ordered ID is generated by the
+     * server. Required on update.
+     */
     private String id;
      
     @NotNull(message = "billingid cannot be null or empty")  
@@ -24,5 +27,11 @@ public class BillingdetailsDto {
    
     @NotBlank(message = "paymentstatus cannot be null or empty")  
     private String paymentstatus;
+
+    /**
+     * Set by the server and returned as the entity tag; ignored on create
+     * and update, where {@code If-Match} carries the expected version.
+     */
+    private Long version;
   
 }
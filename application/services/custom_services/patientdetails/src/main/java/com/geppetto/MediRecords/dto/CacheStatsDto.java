@@ -0,0 +1,28 @@
+package com.geppetto.MediRecords.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDto {
+
+    private long estimatedSize;
+
+    private long hitCount;
+
+    private long missCount;
+
+    private double hitRate;
+
+    private long evictionCount;
+
+    private long loadCount;
+
+    private double averageLoadPenaltyMillis;
+
+}
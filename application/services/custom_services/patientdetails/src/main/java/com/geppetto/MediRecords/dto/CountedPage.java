@@ -0,0 +1,29 @@
+package com.geppetto.MediRecords.dto;
+
+import java.util.List;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import com.geppetto.MediRecords.util.CountStrategy;
+
+/**
+ * A {@link org.springframework.data.domain.Page} that also reports which
+ * {@link CountStrategy} produced its {@code totalElements}.
+ *
+ * @param <T> The type of the page content.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final CountStrategy countStrategy;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, CountStrategy countStrategy) {
+        super(content, pageable, total);
+        this.countStrategy = countStrategy;
+    }
+
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.geppetto.MediRecords.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDto<T> {
+
+    private List<T> content;
+
+    private int size;
+
+    private boolean hasNext;
+
+    /**
+     * Opaque continuation token; pass it back as {@code cursor} to fetch the
+     * next page. {@code null} on the last page.
+     */
+    private String nextCursor;
+
+}
@@ -0,0 +1,45 @@
+package com.geppetto.MediRecords.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDto {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String id;
+
+    private String entity;
+
+    private Status status;
+
+    private long rowsRead;
+
+    private long rowsImported;
+
+    private long rowsRejected;
+
+    private double rowsPerSecond;
+
+    private Instant submittedAt;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    private String message;
+
+}
@@ -0,0 +1,28 @@
+package com.geppetto.MediRecords.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientSummaryDto {
+
+    private int patientid;
+
+    private List<AppointmentDto> appointments;
+
+    private List<BillingdetailsDto> billingdetails;
+
+    /**
+     * Number of billingdetails per {@code paymentstatus}.
+     */
+    private Map<String, Long> billingStatusCounts;
+
+}
@@ -0,0 +1,23 @@
+package com.geppetto.MediRecords.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A period from {@code starttime} up to but not including {@code endtime}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeSlotDto {
+
+    private LocalDateTime starttime;
+
+    private LocalDateTime endtime;
+
+}
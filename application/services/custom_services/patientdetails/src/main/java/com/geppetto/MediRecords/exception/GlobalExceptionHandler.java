@@ -2,7 +2,10 @@ package com.geppetto.MediRecords.exception;
 
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -10,6 +13,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import java.util.stream.Collectors;
 import org.springframework.validation.ObjectError;
 import java.io.FileNotFoundException;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 @Slf4j
@@ -20,7 +24,16 @@ public ResponseEntity<String> handleMethodArgumentNotValidException(MethodArgume
     String errorMsg = ex.getBindingResult().getAllErrors().stream()
     .map(ObjectError::getDefaultMessage)
     .collect(Collectors.joining(", "));
-    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMsg);
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.TEXT_PLAIN).body(errorMsg);
+    }
+
+@ExceptionHandler(com.geppetto.MediRecords.exception.MethodArgumentNotValidException.class)
+public ResponseEntity<String> handleInvalidArgumentException(com.geppetto.MediRecords.exception.MethodArgumentNotValidException e) {
+    log.warn("Invalid argument: {}", e.getMessage());
+        return ResponseEntity
+        .status(HttpStatus.BAD_REQUEST)
+        .contentType(MediaType.TEXT_PLAIN)
+        .body(e.getMessage());
     }
 
 @ExceptionHandler(EntityNotFoundException.class)
@@ -28,14 +41,63 @@ public ResponseEntity<String> handleEntityNotFoundException(EntityNotFoundExcept
     log.error("Entity not found exception caught", e);
         return ResponseEntity
         .status(HttpStatus.NOT_FOUND)
+        .contentType(MediaType.TEXT_PLAIN)
+        .body(e.getMessage());
+    }
+
+@ExceptionHandler(PreconditionFailedException.class)
+public ResponseEntity<String> handlePreconditionFailedException(PreconditionFailedException e) {
+    log.warn("Precondition failed: {}", e.getMessage());
+        return ResponseEntity
+        .status(HttpStatus.PRECONDITION_FAILED)
+        .contentType(MediaType.TEXT_PLAIN)
+        .body(e.getMessage());
+    }
+
+@ExceptionHandler(ConflictException.class)
+public ResponseEntity<String> handleConflictException(ConflictException e) {
+    log.warn("Conflict: {}", e.getMessage());
+        return ResponseEntity
+        .status(HttpStatus.CONFLICT)
+        .contentType(MediaType.TEXT_PLAIN)
         .body(e.getMessage());
     }
 
+@ExceptionHandler(DataIntegrityViolationException.class)
+public ResponseEntity<String> handleDataIntegrityViolationException(DataIntegrityViolationException e) {
+    log.error("Data integrity violation caught", e);
+        return ResponseEntity
+        .status(HttpStatus.CONFLICT)
+        .contentType(MediaType.TEXT_PLAIN)
+        .body("Data conflicts with an existing record");
+    }
+
+@ExceptionHandler(ServiceUnavailableException.class)
+public ResponseEntity<String> handleServiceUnavailableException(ServiceUnavailableException e) {
+    log.warn("Service unavailable: {}", e.getMessage());
+        return ResponseEntity
+        .status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .contentType(MediaType.TEXT_PLAIN)
+        .body(e.getMessage());
+    }
+
+@ExceptionHandler(RejectedExecutionException.class)
+public ResponseEntity<String> handleRejectedExecutionException(RejectedExecutionException e) {
+    log.warn("Task rejected: {}", e.getMessage());
+        return ResponseEntity
+        .status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .contentType(MediaType.TEXT_PLAIN)
+        .body("The service is overloaded, please retry later");
+    }
+
 @ExceptionHandler(FileNotFoundException.class)
 public ResponseEntity<String> handleFileNotFoundException(FileNotFoundException e) {
     log.error("File not found exception caught", e);
             return ResponseEntity
             .status(HttpStatus.NOT_FOUND)
+            .contentType(MediaType.TEXT_PLAIN)
             .body(e.getMessage());
     }
 
@@ -0,0 +1,307 @@
+package com.geppetto.MediRecords.index;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.geppetto.MediRecords.dao.BillingdetailsDao;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Number of billingdetails per {@code paymentstatus}, overall and per
+ * {@code patientid}, kept in memory so aggregation requests do not touch the
+ * database. The counters are seeded in the background once the application
+ * is ready, with one {@code GROUP BY} over the table, and are then moved by
+ * creates once they commit. Until the seed has finished, callers fall back to
+ * the database.
+ * <p>
+ * Updates, patches of the status or patient, and deletes do not read the
+ * row they change, so the group it leaves is unknown and they do not move
+ * the counters. They report the change instead, and the counters are
+ * reconciled {@code medirecords.billing-counts.settle-delay} later.
+ * Otherwise the counters are compared with a fresh {@code GROUP BY} every
+ * {@code medirecords.billing-counts.reconcile-interval}. A group is corrected
+ * only if it did not change while the query ran and two passes in a row
+ * found it off by the same amount, so writes that commit during a pass are
+ * never counted twice; a pass that leaves such a difference is followed by
+ * the next one after the settle delay. Rows without a payment status are
+ * counted under the empty status.
+ */
+@Component
+@Slf4j
+public class BillingStatusCounts {
+
+    public static final String NO_STATUS = "";
+
+    private final BillingdetailsDao billingdetailsDao;
+    private final boolean enabled;
+    private final Duration reconcileInterval;
+    private final Duration settleDelay;
+    private final Map<String, LongAdder> totals = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, LongAdder>> byPatientid = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, Long>> pendingDrift = new HashMap<>();
+    private final AtomicLong corrections = new AtomicLong();
+    private final AtomicBoolean passRequested = new AtomicBoolean();
+    private volatile ScheduledExecutorService reconciler;
+    private volatile boolean ready;
+
+    public BillingStatusCounts(BillingdetailsDao billingdetailsDao,
+            @Value("${medirecords.billing-counts.enabled:true}") boolean enabled,
+            @Value("${medirecords.billing-counts.reconcile-interval:5m}") Duration reconcileInterval,
+            @Value("${medirecords.billing-counts.settle-delay:30s}") Duration settleDelay) {
+        this.billingdetailsDao = billingdetailsDao;
+        this.enabled = enabled;
+        this.reconcileInterval = reconcileInterval;
+        this.settleDelay = settleDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || reconciler != null) {
+            return;
+        }
+        reconciler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "billing-counts-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcile, 0, reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return Whether writes have to report their changes, that is whether
+     * the counters are enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return Whether the counters have been seeded and answer requests.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return The number of groups corrected by reconciliation since startup.
+     */
+    public long getCorrections() {
+        return corrections.get();
+    }
+
+    /**
+     * Counts committed billingdetails.
+     */
+    public void add(int patientid, String paymentstatus) {
+        adjust(patientid, paymentstatus, 1);
+    }
+
+    /**
+     * Reports a committed write that may have moved billingdetails between
+     * groups or removed them: an update, a patch of the status or patient,
+     * or a delete. Writes reported before the next pass share it.
+     */
+    public void changed() {
+        if (ready) {
+            requestPass();
+        }
+    }
+
+    /**
+     * @return The number of billingdetails per status, or {@code null} if the
+     * database has to answer instead because the counters are disabled or not
+     * seeded yet.
+     */
+    public Map<String, Long> byPaymentstatus() {
+        return ready ? snapshot(totals) : null;
+    }
+
+    /**
+     * @param patientid The patient whose billingdetails to count.
+     * @return The number of billingdetails of the patient per status, or
+     * {@code null} if the database has to answer instead.
+     */
+    public Map<String, Long> byPaymentstatus(int patientid) {
+        if (!ready) {
+            return null;
+        }
+        Map<String, LongAdder> counts = byPatientid.get(patientid);
+        return counts == null ? new TreeMap<>() : snapshot(counts);
+    }
+
+    /**
+     * @return The number of billingdetails per patient and status, leaving
+     * out patients without any, or {@code null} if the database has to answer
+     * instead.
+     */
+    public Map<Integer, Map<String, Long>> byPatientidAndPaymentstatus() {
+        if (!ready) {
+            return null;
+        }
+        Map<Integer, Map<String, Long>> counts = new TreeMap<>();
+        byPatientid.forEach((patientid, statuses) -> {
+            Map<String, Long> patientCounts = snapshot(statuses);
+            if (!patientCounts.isEmpty()) {
+                counts.put(patientid, patientCounts);
+            }
+        });
+        return counts;
+    }
+
+    private void adjust(int patientid, String paymentstatus, long delta) {
+        if (!enabled) {
+            return;
+        }
+        String status = paymentstatus == null ? NO_STATUS : paymentstatus;
+        byPatientid.computeIfAbsent(patientid, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(status, key -> new LongAdder())
+                .add(delta);
+        totals.computeIfAbsent(status, key -> new LongAdder()).add(delta);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((status, count) -> {
+            long sum = count.sum();
+            if (sum != 0) {
+                snapshot.put(status, sum);
+            }
+        });
+        return snapshot;
+    }
+
+    private Map<Integer, Map<String, Long>> snapshotAll() {
+        Map<Integer, Map<String, Long>> snapshot = new HashMap<>();
+        byPatientid.forEach((patientid, statuses) -> snapshot.put(patientid, snapshot(statuses)));
+        return snapshot;
+    }
+
+    private void requestPass() {
+        ScheduledExecutorService scheduler = reconciler;
+        if (scheduler != null && passRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::reconcile, settleDelay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // shutting down
+            }
+        }
+    }
+
+    private void reconcile() {
+        long start = System.currentTimeMillis();
+        passRequested.set(false);
+        try {
+            Map<Integer, Map<String, Long>> before = snapshotAll();
+            List<Object[]> rows = billingdetailsDao.countBillingdetailsByPatientidAndPaymentstatus();
+            Map<Integer, Map<String, Long>> after = snapshotAll();
+
+            Map<Integer, Map<String, Long>> actual = new HashMap<>();
+            for (Object[] row : rows) {
+                String status = row[1] == null ? NO_STATUS : (String) row[1];
+                actual.computeIfAbsent(((Number) row[0]).intValue(), key -> new HashMap<>())
+                        .put(status, ((Number) row[2]).longValue());
+            }
+
+            if (!ready) {
+                seed(actual, after);
+                ready = true;
+                log.info("Loaded billing status counts: {} groups in {} ms", rows.size(), System.currentTimeMillis() - start);
+                return;
+            }
+
+            Set<Integer> patientids = new HashSet<>(actual.keySet());
+            patientids.addAll(after.keySet());
+            int corrected = 0;
+            for (Integer patientid : patientids) {
+                Map<String, Long> actualCounts = actual.getOrDefault(patientid, Map.of());
+                Map<String, Long> beforeCounts = before.getOrDefault(patientid, Map.of());
+                Map<String, Long> afterCounts = after.getOrDefault(patientid, Map.of());
+                Set<String> statuses = new HashSet<>(actualCounts.keySet());
+                statuses.addAll(afterCounts.keySet());
+                for (String status : statuses) {
+                    long counted = afterCounts.getOrDefault(status, 0L);
+                    long drift = actualCounts.getOrDefault(status, 0L) - counted;
+                    if (drift == 0 || counted != beforeCounts.getOrDefault(status, 0L)) {
+                        clearDrift(patientid, status);
+                    } else if (recordDrift(patientid, status, drift)) {
+                        adjust(patientid, status, drift);
+                        clearDrift(patientid, status);
+                        corrected++;
+                    }
+                }
+            }
+            pendingDrift.keySet().retainAll(patientids);
+            if (corrected > 0) {
+                corrections.addAndGet(corrected);
+                log.info("Corrected {} billing status counts from the database", corrected);
+            }
+            if (!pendingDrift.isEmpty()) {
+                requestPass();
+            }
+        } catch (RuntimeException e) {
+            log.error("{} the billing status counts failed; retrying in {}", ready ? "Reconciling" : "Loading",
+                    reconcileInterval, e);
+        }
+    }
+
+    /**
+     * Sets every counter to the count read from the database. Writes counted
+     * before the query are part of it; writes counted while it ran may be
+     * off until reconciliation corrects them.
+     */
+    private void seed(Map<Integer, Map<String, Long>> actual, Map<Integer, Map<String, Long>> counted) {
+        actual.forEach((patientid, statuses) -> statuses.forEach((status, count) ->
+                adjust(patientid, status, count - counted.getOrDefault(patientid, Map.of()).getOrDefault(status, 0L))));
+        counted.forEach((patientid, statuses) -> statuses.forEach((status, count) -> {
+            if (!actual.getOrDefault(patientid, Map.of()).containsKey(status)) {
+                adjust(patientid, status, -count);
+            }
+        }));
+    }
+
+    /**
+     * @return Whether the previous pass found the same drift.
+     */
+    private boolean recordDrift(int patientid, String status, long drift) {
+        Long previous = pendingDrift.computeIfAbsent(patientid, key -> new HashMap<>()).put(status, drift);
+        return previous != null && previous == drift;
+    }
+
+    private void clearDrift(int patientid, String status) {
+        Map<String, Long> drifts = pendingDrift.get(patientid);
+        if (drifts != null) {
+            drifts.remove(status);
+            if (drifts.isEmpty()) {
+                pendingDrift.remove(patientid);
+            }
+        }
+    }
+
+}
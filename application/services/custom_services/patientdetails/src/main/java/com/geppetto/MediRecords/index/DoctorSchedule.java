@@ -0,0 +1,343 @@
+package com.geppetto.MediRecords.index;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.geppetto.MediRecords.dao.AppointmentDao;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Booked time slots of every doctor, used to reject overlapping appointments
+ * and to find free slots without querying the database. Each doctor's slots
+ * are held as sorted arrays of primitive start and end times, so a lookup is
+ * a binary search followed by a scan of the few slots around it. A write
+ * replaces the doctor's arrays with updated copies; reads never lock.
+ * <p>
+ * The schedule is loaded in the background once the application is ready
+ * by streaming the appointments that have a time slot, and is kept current
+ * by the write paths of the appointment service. Until the load has
+ * finished, callers fall back to the database. The check is made in this
+ * instance only: appointments booked through another instance are seen once
+ * they are loaded at its next start.
+ */
+@Component
+@Slf4j
+public class DoctorSchedule {
+
+    /**
+     * A booked slot of a doctor, from {@code starttime} up to but not
+     * including {@code endtime}.
+     */
+    public record Slot(String id, String doctorname, LocalDateTime starttime, LocalDateTime endtime) {
+    }
+
+    /**
+     * The slots of one doctor ordered by start time, as parallel arrays.
+     * Never modified once published. {@code maxLength} is at least the
+     * length of the longest slot, which bounds how far before a time a slot
+     * overlapping it can start.
+     */
+    private record Timeline(long[] starts, long[] ends, String[] ids, long maxLength) {
+
+        static final Timeline EMPTY = new Timeline(new long[0], new long[0], new String[0], 0);
+
+        static Timeline of(List<Slot> slots) {
+            slots.sort(Comparator.comparing(Slot::starttime));
+            long[] starts = new long[slots.size()];
+            long[] ends = new long[slots.size()];
+            String[] ids = new String[slots.size()];
+            long maxLength = 0;
+            for (int i = 0; i < ids.length; i++) {
+                Slot slot = slots.get(i);
+                starts[i] = toSeconds(slot.starttime());
+                ends[i] = toSeconds(slot.endtime());
+                ids[i] = slot.id();
+                maxLength = Math.max(maxLength, ends[i] - starts[i]);
+            }
+            return new Timeline(starts, ends, ids, maxLength);
+        }
+
+        /**
+         * @return The index of the first slot starting at or after {@code time}.
+         */
+        int firstStartingAt(long time) {
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return The ID of a slot other than {@code exceptId} overlapping
+         * {@code [start, end)}, or {@code null} if there is none.
+         */
+        String overlapping(long start, long end, String exceptId) {
+            for (int i = firstStartingAt(end) - 1; i >= 0 && starts[i] > start - maxLength; i--) {
+                if (ends[i] > start && !ids[i].equals(exceptId)) {
+                    return ids[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return The indexes of the slots overlapping {@code [from, to)}, in
+         * start order.
+         */
+        int[] between(long from, long to) {
+            int last = firstStartingAt(to);
+            int first = firstStartingAt(from - maxLength);
+            int[] found = new int[last - first];
+            int count = 0;
+            for (int i = first; i < last; i++) {
+                if (ends[i] > from) {
+                    found[count++] = i;
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+
+        Timeline with(String id, long start, long end) {
+            int at = firstStartingAt(start);
+            int length = starts.length;
+            long[] newStarts = new long[length + 1];
+            long[] newEnds = new long[length + 1];
+            String[] newIds = new String[length + 1];
+            System.arraycopy(starts, 0, newStarts, 0, at);
+            System.arraycopy(ends, 0, newEnds, 0, at);
+            System.arraycopy(ids, 0, newIds, 0, at);
+            newStarts[at] = start;
+            newEnds[at] = end;
+            newIds[at] = id;
+            System.arraycopy(starts, at, newStarts, at + 1, length - at);
+            System.arraycopy(ends, at, newEnds, at + 1, length - at);
+            System.arraycopy(ids, at, newIds, at + 1, length - at);
+            return new Timeline(newStarts, newEnds, newIds, Math.max(maxLength, end - start));
+        }
+
+        Timeline without(String id, long start) {
+            int at = firstStartingAt(start);
+            while (at < starts.length && starts[at] == start && !ids[at].equals(id)) {
+                at++;
+            }
+            if (at == starts.length || starts[at] != start) {
+                return this;
+            }
+            int length = starts.length;
+            if (length == 1) {
+                return EMPTY;
+            }
+            long[] newStarts = new long[length - 1];
+            long[] newEnds = new long[length - 1];
+            String[] newIds = new String[length - 1];
+            System.arraycopy(starts, 0, newStarts, 0, at);
+            System.arraycopy(ends, 0, newEnds, 0, at);
+            System.arraycopy(ids, 0, newIds, 0, at);
+            System.arraycopy(starts, at + 1, newStarts, at, length - at - 1);
+            System.arraycopy(ends, at + 1, newEnds, at, length - at - 1);
+            System.arraycopy(ids, at + 1, newIds, at, length - at - 1);
+            return new Timeline(newStarts, newEnds, newIds, maxLength);
+        }
+
+    }
+
+    private final AppointmentDao appointmentDao;
+    private final boolean enabled;
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final Set<String> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public DoctorSchedule(AppointmentDao appointmentDao,
+            @Value("${medirecords.schedule.enabled:true}") boolean enabled) {
+        this.appointmentDao = appointmentDao;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!enabled) {
+            return;
+        }
+        loading = true;
+        Thread loader = new Thread(this::load, "doctor-schedule-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * @return Whether the initial load has finished and the schedule answers
+     * overlap checks and free slot queries.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @param id The ID of an appointment.
+     * @return The slot the appointment holds, or {@code null} if it has none.
+     */
+    public Slot get(String id) {
+        return slots.get(id);
+    }
+
+    /**
+     * Finds the appointments of a doctor that overlap a period.
+     *
+     * @param doctorname The doctor.
+     * @param from The start of the period.
+     * @param to The end of the period, exclusive.
+     * @return The overlapping slots in start order, or {@code null} if the
+     * database has to answer instead because the schedule is disabled or
+     * still loading.
+     */
+    public List<Slot> between(String doctorname, LocalDateTime from, LocalDateTime to) {
+        if (!ready) {
+            return null;
+        }
+        Timeline timeline = timelines.getOrDefault(doctorname, Timeline.EMPTY);
+        int[] found = timeline.between(toSeconds(from), toSeconds(to));
+        List<Slot> between = new ArrayList<>(found.length);
+        for (int i : found) {
+            between.add(new Slot(timeline.ids()[i], doctorname, toTime(timeline.starts()[i]), toTime(timeline.ends()[i])));
+        }
+        return between;
+    }
+
+    /**
+     * Books a slot for an appointment unless it overlaps another appointment
+     * of the same doctor, replacing the slot the appointment held before.
+     * The check and the booking are atomic. Until the schedule is ready the
+     * slot is booked without a check.
+     *
+     * @param slot The slot to book.
+     * @return The ID of an overlapping appointment, in which case nothing was
+     * booked, or {@code null} once the slot is booked.
+     */
+    public synchronized String reserve(Slot slot) {
+        if (!enabled) {
+            return null;
+        }
+        long start = toSeconds(slot.starttime());
+        long end = toSeconds(slot.endtime());
+        if (ready) {
+            String overlapping = timelines.getOrDefault(slot.doctorname(), Timeline.EMPTY).overlapping(start, end, slot.id());
+            if (overlapping != null) {
+                return overlapping;
+            }
+        }
+        unbook(slot.id());
+        timelines.put(slot.doctorname(), timelines.getOrDefault(slot.doctorname(), Timeline.EMPTY).with(slot.id(), start, end));
+        slots.put(slot.id(), slot);
+        return null;
+    }
+
+    /**
+     * Puts back the slot an appointment held before a write that failed.
+     *
+     * @param id The ID of the appointment.
+     * @param previous The slot it held, or {@code null} if it had none.
+     */
+    public synchronized void restore(String id, Slot previous) {
+        if (!enabled) {
+            return;
+        }
+        unbook(id);
+        if (previous != null) {
+            timelines.put(previous.doctorname(), timelines.getOrDefault(previous.doctorname(), Timeline.EMPTY)
+                    .with(id, toSeconds(previous.starttime()), toSeconds(previous.endtime())));
+            slots.put(id, previous);
+        }
+    }
+
+    /**
+     * Frees the slot of an appointment that was deleted or no longer has a
+     * time slot.
+     *
+     * @param id The ID of the appointment.
+     */
+    public void remove(String id) {
+        restore(id, null);
+    }
+
+    private void unbook(String id) {
+        if (loading) {
+            changedDuringLoad.add(id);
+        }
+        Slot previous = slots.remove(id);
+        if (previous != null) {
+            Timeline timeline = timelines.get(previous.doctorname()).without(id, toSeconds(previous.starttime()));
+            if (timeline == Timeline.EMPTY) {
+                timelines.remove(previous.doctorname());
+            } else {
+                timelines.put(previous.doctorname(), timeline);
+            }
+        }
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, List<Slot>> loaded = new HashMap<>();
+            long rows = appointmentDao.streamAppointmentSlots(row -> {
+                Slot slot = new Slot((String) row[0], (String) row[1], (LocalDateTime) row[2], (LocalDateTime) row[3]);
+                if (slot.endtime().isAfter(slot.starttime())) {
+                    loaded.computeIfAbsent(slot.doctorname(), key -> new ArrayList<>()).add(slot);
+                }
+            });
+            synchronized (this) {
+                // slots booked while loading are already in place and newer than the loaded ones
+                loaded.forEach((doctorname, doctorSlots) -> {
+                    doctorSlots.removeIf(slot -> changedDuringLoad.contains(slot.id()) || slots.containsKey(slot.id()));
+                    doctorSlots.forEach(slot -> slots.put(slot.id(), slot));
+                    Timeline booked = timelines.getOrDefault(doctorname, Timeline.EMPTY);
+                    for (int i = 0; i < booked.ids().length; i++) {
+                        doctorSlots.add(slots.get(booked.ids()[i]));
+                    }
+                    if (!doctorSlots.isEmpty()) {
+                        timelines.put(doctorname, Timeline.of(doctorSlots));
+                    }
+                });
+                ready = true;
+            }
+            log.info("Loaded doctor schedule: {} slots of {} doctors in {} ms", rows, loaded.size(),
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Loading the doctor schedule failed; overlap checks and free slots will use the database", e);
+        } finally {
+            loading = false;
+            changedDuringLoad.clear();
+        }
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toTime(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.geppetto.MediRecords.index;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.geppetto.MediRecords.dao.AppointmentDao;
+import com.geppetto.MediRecords.util.SearchOperator;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Trigram index over {@code Appointment.doctorname}, used to answer
+ * {@code doctorname=contains:...} searches without a {@code LIKE '%x%'}
+ * table scan. The index is loaded in the background once the application is
+ * ready by streaming {@code (id, doctorname)} pairs from the primary, and is
+ * kept current by the write paths of the appointment service once they
+ * commit. Until the load has finished, searches fall back to the database.
+ * <p>
+ * The index only sees the writes of this instance, so it is off by default
+ * and may only be enabled where this instance is the single writer of the
+ * appointment table. As a guard, every
+ * {@code medirecords.doctorname-index.verify-interval} the number of indexed
+ * rows is compared with the row count of the table. If two passes in a row
+ * find the same difference, the index is dropped, searches fall back to the
+ * database, and the index is loaded again.
+ */
+@Component
+@Slf4j
+public class DoctornameIndex {
+
+    private final AppointmentDao appointmentDao;
+    private final boolean enabled;
+    private final int maxMatches;
+    private final Duration verifyInterval;
+    private final Set<String> removedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile TrigramIndex index = new TrigramIndex();
+    private volatile boolean loading;
+    private volatile boolean ready;
+    private ScheduledExecutorService refresher;
+    private Long pendingDrift;
+
+    public DoctornameIndex(AppointmentDao appointmentDao,
+            @Value("${medirecords.doctorname-index.enabled:false}") boolean enabled,
+            @Value("${medirecords.doctorname-index.max-matches:1000}") int maxMatches,
+            @Value("${medirecords.doctorname-index.verify-interval:5m}") Duration verifyInterval) {
+        this.appointmentDao = appointmentDao;
+        this.enabled = enabled;
+        if (maxMatches > SearchOperator.MAX_IN_VALUES) {
+            log.warn("medirecords.doctorname-index.max-matches of {} exceeds the {} values an IN list can hold; using {}",
+                    maxMatches, SearchOperator.MAX_IN_VALUES, SearchOperator.MAX_IN_VALUES);
+        }
+        this.maxMatches = Math.min(maxMatches, SearchOperator.MAX_IN_VALUES);
+        this.verifyInterval = verifyInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || refresher != null) {
+            return;
+        }
+        loading = true;
+        refresher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "doctorname-index-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, 0, verifyInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the IDs of appointments whose doctor name contains the query.
+     *
+     * @param query The substring to look for, ignoring case.
+     * @return The matching IDs, or {@code null} if the database has to answer
+     * instead: the index is disabled, loading, or was found out of date, the
+     * query is shorter than three characters, or it matches more than
+     * {@code medirecords.doctorname-index.max-matches} appointments, which is
+     * capped at 1000, the most values an Oracle {@code IN} list accepts.
+     */
+    public List<String> search(String query) {
+        if (!ready) {
+            return null;
+        }
+        return index.search(query, maxMatches);
+    }
+
+    /**
+     * @return Whether the index is loaded and verified, so searches are
+     * answered from it.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(String id, String doctorname) {
+        if (enabled) {
+            index.put(id, doctorname);
+        }
+    }
+
+    public void remove(String id) {
+        if (enabled) {
+            if (loading) {
+                removedDuringLoad.add(id);
+            }
+            index.remove(id);
+        }
+    }
+
+    private void refresh() {
+        try {
+            if (ready) {
+                verify();
+            } else {
+                load();
+            }
+        } catch (RuntimeException e) {
+            log.error("{} the doctorname index failed; substring searches use the database, retrying in {}",
+                    ready ? "Verifying" : "Loading", verifyInterval, e);
+        }
+    }
+
+    /**
+     * Builds a new index from the table. Writes that commit while the rows
+     * are streamed go to the new index directly, and neither a row they
+     * replaced nor one they removed is put back by the stream.
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        loading = true;
+        index = new TrigramIndex();
+        try {
+            long rows = appointmentDao.streamAppointmentDoctornames((id, doctorname) -> {
+                if (!removedDuringLoad.contains(id)) {
+                    index.putIfAbsent(id, doctorname);
+                }
+            });
+            pendingDrift = null;
+            ready = true;
+            log.info("Loaded doctorname index: {} rows in {} ms", rows, System.currentTimeMillis() - start);
+        } finally {
+            loading = false;
+            removedDuringLoad.clear();
+        }
+    }
+
+    /**
+     * Compares the number of indexed rows with the row count of the table.
+     * A pass during which this instance wrote is inconclusive; a difference
+     * has to be seen by two passes in a row before the index is reloaded.
+     */
+    private void verify() {
+        int before = index.size();
+        long rows = appointmentDao.countAppointmentRows();
+        int after = index.size();
+        long drift = rows - after;
+        if (drift == 0 || before != after) {
+            pendingDrift = null;
+        } else if (pendingDrift != null && pendingDrift == drift) {
+            log.warn("The doctorname index holds {} rows but the table has {}; it is written outside this instance."
+                    + " Reloading, substring searches use the database meanwhile", after, rows);
+            ready = false;
+            load();
+        } else {
+            pendingDrift = drift;
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.geppetto.MediRecords.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index mapping text to record IDs, for case-insensitive
+ * substring search.
+ *
+ * <p>Every indexed record gets an int ordinal; each trigram of its text owns
+ * a posting list of ordinals kept as a sorted primitive array. A query is
+ * answered by intersecting the posting lists of its trigrams and checking the
+ * surviving candidates against the stored text. Removing or replacing a
+ * record tombstones its ordinal; the index is compacted once tombstones
+ * outnumber live records.
+ */
+public final class TrigramIndex {
+
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private String[] idByOrdinal = new String[MIN_COMPACTION_SIZE];
+    private String[] textByOrdinal = new String[MIN_COMPACTION_SIZE];
+    private int nextOrdinal;
+
+    /**
+     * Indexes or re-indexes a record.
+     *
+     * @param id The record ID. Must not be {@code null}.
+     * @param text The text to index; {@code null} removes the record.
+     */
+    public void put(String id, String text) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (text != null) {
+                addLocked(id, text.toLowerCase(Locale.ROOT));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a record only if it is not indexed yet.
+     *
+     * @return {@code true} if the record was added.
+     */
+    public boolean putIfAbsent(String id, String text) {
+        lock.writeLock().lock();
+        try {
+            if (ordinalById.containsKey(id) || text == null) {
+                return false;
+            }
+            addLocked(id, text.toLowerCase(Locale.ROOT));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the records whose text contains the query, ignoring case.
+     *
+     * @param query The substring to look for.
+     * @param maxMatches The most IDs the caller is willing to handle.
+     * @return The matching IDs, or {@code null} if the index cannot answer:
+     * the query is shorter than three characters or matches more than
+     * {@code maxMatches} records.
+     */
+    public List<String> search(String query, int maxMatches) {
+        String normalized = query.toLowerCase(Locale.ROOT);
+        long[] trigrams = trigrams(normalized);
+        if (trigrams.length == 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[trigrams.length];
+            for (int i = 0; i < trigrams.length; i++) {
+                lists[i] = postings.get(trigrams[i]);
+                if (lists[i] == null) {
+                    return List.of();
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            int[] candidates = Arrays.copyOf(lists[0].ordinals, lists[0].size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.length && count > 0; i++) {
+                count = intersect(candidates, count, lists[i]);
+            }
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int ordinal = candidates[i];
+                String text = textByOrdinal[ordinal];
+                if (text != null && text.contains(normalized)) {
+                    if (ids.size() == maxMatches) {
+                        return null;
+                    }
+                    ids.add(idByOrdinal[ordinal]);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(String id, String text) {
+        if (nextOrdinal == idByOrdinal.length) {
+            if (nextOrdinal - ordinalById.size() > ordinalById.size() && nextOrdinal >= MIN_COMPACTION_SIZE) {
+                compactLocked();
+            }
+            if (nextOrdinal == idByOrdinal.length) {
+                idByOrdinal = Arrays.copyOf(idByOrdinal, idByOrdinal.length * 2);
+                textByOrdinal = Arrays.copyOf(textByOrdinal, textByOrdinal.length * 2);
+            }
+        }
+        int ordinal = nextOrdinal++;
+        idByOrdinal[ordinal] = id;
+        textByOrdinal[ordinal] = text;
+        ordinalById.put(id, ordinal);
+        for (long trigram : trigrams(text)) {
+            postings.computeIfAbsent(trigram, key -> new PostingList()).add(ordinal);
+        }
+    }
+
+    private void removeLocked(String id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal != null) {
+            idByOrdinal[ordinal] = null;
+            textByOrdinal[ordinal] = null;
+        }
+    }
+
+    private void compactLocked() {
+        String[] ids = idByOrdinal;
+        String[] texts = textByOrdinal;
+        int end = nextOrdinal;
+        ordinalById.clear();
+        postings.clear();
+        idByOrdinal = new String[Math.max(MIN_COMPACTION_SIZE, ids.length)];
+        textByOrdinal = new String[idByOrdinal.length];
+        nextOrdinal = 0;
+        for (int i = 0; i < end; i++) {
+            if (ids[i] != null) {
+                addLocked(ids[i], texts[i]);
+            }
+        }
+    }
+
+    private static int intersect(int[] candidates, int count, PostingList list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            int ordinal = candidates[i];
+            while (j < list.size && list.ordinals[j] < ordinal) {
+                j++;
+            }
+            if (j < list.size && list.ordinals[j] == ordinal) {
+                candidates[kept++] = ordinal;
+            }
+        }
+        return kept;
+    }
+
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] trigrams = new long[text.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return Arrays.stream(trigrams).distinct().toArray();
+    }
+
+    /**
+     * Growable, sorted array of ordinals. Ordinals are handed out in
+     * increasing order, so appending keeps the array sorted.
+     */
+    private static final class PostingList {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                return;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+    }
+
+}
@@ -1,12 +1,24 @@
 package com.geppetto.MediRecords.model;
 
+import java.time.LocalDateTime;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 
 
@@ -16,7 +28,7 @@ import lombok.NoArgsConstructor;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Appointment {
+public class Appointment implements Persistable<String> {
 
     @Id
     private String id;
@@ -26,7 +38,47 @@ public class Appointment {
     private int patientid;
     
     private String doctorname;
-    
-    
-    
-}
\ No newline at end of file
+
+    /**
+     * When the appointment starts; {@code null} for appointments booked
+     * without a time slot.
+     */
+    private LocalDateTime starttime;
+
+    /**
+     * When the appointment ends, exclusive; set exactly when
+     * {@code starttime} is.
+     */
+    private LocalDateTime endtime;
+
+    /**
+     * Incremented by every update. Guards conditional writes and is the
+     * entity tag of the row.
+     */
+    @Version
+    private long version;
+
+    /**
+     * Entities built from a DTO are new; entities loaded or just inserted
+     * are not. This lets {@code save()} go straight to an INSERT instead of
+     * probing for an existing row with a SELECT first.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+}
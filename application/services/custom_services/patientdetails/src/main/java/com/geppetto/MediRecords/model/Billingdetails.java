@@ -2,11 +2,21 @@ package com.geppetto.MediRecords.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 
 
@@ -16,7 +26,7 @@ import lombok.NoArgsConstructor;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Billingdetails {
+public class Billingdetails implements Persistable<String> {
 
     @Id
     private String id;
@@ -26,7 +36,35 @@ public class Billingdetails {
     private int patientid;
     
     private String paymentstatus;
-    
-    
-    
-}
\ No newline at end of file
+
+    /**
+     * Incremented by every update. Guards conditional writes and is the
+     * entity tag of the row.
+     */
+    @Version
+    private long version;
+
+    /**
+     * Entities built from a DTO are new; entities loaded or just inserted
+     * are not. This lets {@code save()} go straight to an INSERT instead of
+     * probing for an existing row with a SELECT first.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+}
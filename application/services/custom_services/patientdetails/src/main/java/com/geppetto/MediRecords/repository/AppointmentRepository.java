@@ -1,15 +1,71 @@
 package com.geppetto.MediRecords.repository;
 
 import com.geppetto.MediRecords.model.Appointment;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, String> , JpaSpecificationExecutor<Appointment> {
     
     Page<Appointment> findAll(Pageable pageable);
+
+    Slice<Appointment> findAllBy(Pageable pageable);
+
+    List<Appointment> findByPatientid(int patientid);
+
+    Slice<Appointment> findByIdGreaterThan(String id, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update Appointment a set a.appointmentid = :appointmentid, a.patientid = :patientid, a.doctorname = :doctorname, a.starttime = :starttime, a.endtime = :endtime, a.version = a.version + 1 where a.id = :id")
+    int updateById(@Param("id") String id, @Param("appointmentid") int appointmentid, @Param("patientid") int patientid,
+            @Param("doctorname") String doctorname, @Param("starttime") LocalDateTime starttime, @Param("endtime") LocalDateTime endtime);
+
+    @Transactional
+    @Modifying
+    @Query("update Appointment a set a.appointmentid = :appointmentid, a.patientid = :patientid, a.doctorname = :doctorname, a.starttime = :starttime, a.endtime = :endtime, a.version = a.version + 1 where a.id = :id and a.version = :version")
+    int updateByIdAndVersion(@Param("id") String id, @Param("appointmentid") int appointmentid, @Param("patientid") int patientid,
+            @Param("doctorname") String doctorname, @Param("starttime") LocalDateTime starttime, @Param("endtime") LocalDateTime endtime,
+            @Param("version") long version);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Appointment a where a.id = :id")
+    int removeById(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Appointment a where a.id = :id and a.version = :version")
+    int removeByIdAndVersion(@Param("id") String id, @Param("version") long version);
+
+    // not read-only, so that with a read replica these go to the primary:
+    // they fill the entity cache and answer the version and overlap checks
+    @Override
+    @Transactional
+    Optional<Appointment> findById(String id);
+
+    @Transactional
+    @Query("select a.version from Appointment a where a.id = :id")
+    Optional<Long> findVersionById(@Param("id") String id);
+
+    @Transactional
+    @Query("select a.id from Appointment a where a.doctorname = :doctorname and a.starttime < :endtime and a.endtime > :starttime and a.id <> :id")
+    List<String> findOverlappingIds(@Param("doctorname") String doctorname, @Param("starttime") LocalDateTime starttime,
+            @Param("endtime") LocalDateTime endtime, @Param("id") String id, Pageable pageable);
+
+    @Query("select a.id, a.starttime, a.endtime from Appointment a where a.doctorname = :doctorname and a.starttime < :to and a.endtime > :from order by a.starttime")
+    List<Object[]> findSlotsBetween(@Param("doctorname") String doctorname, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
     
-}
\ No newline at end of file
+}
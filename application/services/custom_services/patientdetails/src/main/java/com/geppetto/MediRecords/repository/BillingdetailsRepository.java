@@ -1,15 +1,69 @@
 package com.geppetto.MediRecords.repository;
 
 import com.geppetto.MediRecords.model.Billingdetails;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 @Repository
 public interface BillingdetailsRepository extends JpaRepository<Billingdetails, String> , JpaSpecificationExecutor<Billingdetails> {
     
     Page<Billingdetails> findAll(Pageable pageable);
+
+    Slice<Billingdetails> findAllBy(Pageable pageable);
+
+    List<Billingdetails> findByPatientid(int patientid);
+
+    Slice<Billingdetails> findByIdGreaterThan(String id, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update Billingdetails b set b.billingid = :billingid, b.patientid = :patientid, b.paymentstatus = :paymentstatus, b.version = b.version + 1 where b.id = :id")
+    int updateById(@Param("id") String id, @Param("billingid") int billingid, @Param("patientid") int patientid,
+            @Param("paymentstatus") String paymentstatus);
+
+    @Transactional
+    @Modifying
+    @Query("update Billingdetails b set b.billingid = :billingid, b.patientid = :patientid, b.paymentstatus = :paymentstatus, b.version = b.version + 1 where b.id = :id and b.version = :version")
+    int updateByIdAndVersion(@Param("id") String id, @Param("billingid") int billingid, @Param("patientid") int patientid,
+            @Param("paymentstatus") String paymentstatus, @Param("version") long version);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Billingdetails b where b.id = :id")
+    int removeById(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Billingdetails b where b.id = :id and b.version = :version")
+    int removeByIdAndVersion(@Param("id") String id, @Param("version") long version);
+
+    // not read-only, so that with a read replica these go to the primary:
+    // they fill the entity cache and answer the version checks
+    @Override
+    @Transactional
+    Optional<Billingdetails> findById(String id);
+
+    @Transactional
+    @Query("select b.version from Billingdetails b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") String id);
+
+    @Query("select b.patientid, b.paymentstatus, count(b) from Billingdetails b group by b.patientid, b.paymentstatus")
+    List<Object[]> countGroupByPatientidAndPaymentstatus();
+
+    @Query("select b.paymentstatus, count(b) from Billingdetails b group by b.paymentstatus")
+    List<Object[]> countGroupByPaymentstatus();
+
+    @Query("select b.paymentstatus, count(b) from Billingdetails b where b.patientid = :patientid group by b.paymentstatus")
+    List<Object[]> countGroupByPaymentstatus(@Param("patientid") int patientid);
     
-}
\ No newline at end of file
+}
@@ -1,24 +1,64 @@
 package com.geppetto.MediRecords.service;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Function;
 import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.dto.BatchResultDto;
+import com.geppetto.MediRecords.dto.CursorPageDto;
+import com.geppetto.MediRecords.dto.ImportJobDto;
+import com.geppetto.MediRecords.dto.TimeSlotDto;
+import com.geppetto.MediRecords.util.ExportFormat;
 import java.util.Map;
 // import com.geppetto.MediRecords.dto.AppointmentDto;
-import org.springframework.data.domain.Page;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Slice;
 // import com.geppetto.MediRecords.dto.AppointmentDto;
 
 public interface AppointmentService {
 
     AppointmentDto createAppointment(AppointmentDto appointmentDto);
 
+    boolean isWriteBehindEnabled();
+
+    AppointmentDto enqueueAppointment(AppointmentDto appointmentDto);
+
+    BatchResultDto createAppointmentBatch(List<AppointmentDto> appointmentDtos);
+
+    ImportJobDto importAppointment(InputStream csv);
+
+    ImportJobDto getAppointmentImport(String jobId);
+
+    Resource getAppointmentImportRejects(String jobId);
+
+    List<TimeSlotDto> getFreeSlots(String doctorname, LocalDate date, int minutes);
+
     AppointmentDto getAppointmentById(String id);
 
-    Page<AppointmentDto> getAllAppointment(int page, int size);
+    long getAppointmentVersion(String id);
+
+    Map<String, Object> getAppointmentFieldsById(String id, String fields);
+
+    Slice<AppointmentDto> getAllAppointment(int page, int size, String count);
+
+    Slice<Map<String, Object>> getAllAppointmentFields(int page, int size, String fields, String count);
+
+    CursorPageDto<AppointmentDto> getAllAppointmentByCursor(String cursor, int size);
 
     List<AppointmentDto> searchAppointment(Map<String, String> allParams);
 
-    AppointmentDto updateAppointment(AppointmentDto appointmentDto);
+    List<Map<String, Object>> searchAppointmentFields(Map<String, String> allParams);
+
+    long streamSearchAppointment(Map<String, String> allParams, OutputStream outputStream);
+
+    long exportAppointment(Map<String, String> allParams, Function<ExportFormat, OutputStream> output);
+
+    AppointmentDto updateAppointment(AppointmentDto appointmentDto, Long expectedVersion);
+
+    String patchAppointment(String id, Map<String, Object> changes, Long expectedVersion);
 
-    String deleteAppointment(String id);
+    String deleteAppointment(String id, Long expectedVersion);
 
 }
@@ -1,24 +1,59 @@
 package com.geppetto.MediRecords.service;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Function;
 import com.geppetto.MediRecords.dto.BillingdetailsDto;
+import com.geppetto.MediRecords.dto.BatchResultDto;
+import com.geppetto.MediRecords.dto.BillingStatusCountsDto;
+import com.geppetto.MediRecords.dto.CursorPageDto;
+import com.geppetto.MediRecords.dto.ImportJobDto;
+import com.geppetto.MediRecords.util.ExportFormat;
 import java.util.Map;
 // import com.geppetto.MediRecords.dto.BillingdetailsDto;
-import org.springframework.data.domain.Page;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Slice;
 // import com.geppetto.MediRecords.dto.BillingdetailsDto;
 
 public interface BillingdetailsService {
 
     BillingdetailsDto createBillingdetails(BillingdetailsDto billingdetailsDto);
 
+    BatchResultDto createBillingdetailsBatch(List<BillingdetailsDto> billingdetailsDtos);
+
+    ImportJobDto importBillingdetails(InputStream csv);
+
+    ImportJobDto getBillingdetailsImport(String jobId);
+
+    Resource getBillingdetailsImportRejects(String jobId);
+
+    BillingStatusCountsDto getBillingStatusCounts(Integer patientid, String groupBy);
+
     BillingdetailsDto getBillingdetailsById(String id);
 
-    Page<BillingdetailsDto> getAllBillingdetails(int page, int size);
+    long getBillingdetailsVersion(String id);
+
+    Map<String, Object> getBillingdetailsFieldsById(String id, String fields);
+
+    Slice<BillingdetailsDto> getAllBillingdetails(int page, int size, String count);
+
+    Slice<Map<String, Object>> getAllBillingdetailsFields(int page, int size, String fields, String count);
+
+    CursorPageDto<BillingdetailsDto> getAllBillingdetailsByCursor(String cursor, int size);
 
     List<BillingdetailsDto> searchBillingdetails(Map<String, String> allParams);
 
-    BillingdetailsDto updateBillingdetails(BillingdetailsDto billingdetailsDto);
+    List<Map<String, Object>> searchBillingdetailsFields(Map<String, String> allParams);
+
+    long streamSearchBillingdetails(Map<String, String> allParams, OutputStream outputStream);
+
+    long exportBillingdetails(Map<String, String> allParams, Function<ExportFormat, OutputStream> output);
+
+    BillingdetailsDto updateBillingdetails(BillingdetailsDto billingdetailsDto, Long expectedVersion);
+
+    String patchBillingdetails(String id, Map<String, Object> changes, Long expectedVersion);
 
-    String deleteBillingdetails(String id);
+    String deleteBillingdetails(String id, Long expectedVersion);
 
 }
@@ -0,0 +1,10 @@
+package com.geppetto.MediRecords.service;
+
+import java.util.Map;
+import com.geppetto.MediRecords.dto.CacheStatsDto;
+
+public interface CacheService {
+
+    Map<String, CacheStatsDto> getCacheStats();
+
+}
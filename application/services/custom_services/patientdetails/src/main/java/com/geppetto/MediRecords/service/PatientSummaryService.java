@@ -0,0 +1,9 @@
+package com.geppetto.MediRecords.service;
+
+import com.geppetto.MediRecords.dto.PatientSummaryDto;
+
+public interface PatientSummaryService {
+
+    PatientSummaryDto getPatientSummary(int patientid);
+
+}
@@ -1,22 +1,65 @@
 package com.geppetto.MediRecords.service.serviceimpl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import com.geppetto.MediRecords.dao.AppointmentDao;
+import com.geppetto.MediRecords.dto.BatchResultDto;
+import com.geppetto.MediRecords.dto.CountedPage;
+import com.geppetto.MediRecords.dto.CursorPageDto;
+import com.geppetto.MediRecords.dto.ImportJobDto;
 import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.dto.TimeSlotDto;
+import com.geppetto.MediRecords.exception.ConflictException;
 import com.geppetto.MediRecords.exception.EntityNotFoundException;
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+import com.geppetto.MediRecords.exception.PreconditionFailedException;
+import com.geppetto.MediRecords.exception.ServiceUnavailableException;
+import com.geppetto.MediRecords.index.DoctorSchedule;
+import com.geppetto.MediRecords.index.DoctornameIndex;
 import com.geppetto.MediRecords.model.Appointment;
 import com.geppetto.MediRecords.repository.AppointmentRepository;
 import com.geppetto.MediRecords.service.AppointmentService;
+import com.geppetto.MediRecords.util.BatchProcessor;
+import com.geppetto.MediRecords.util.CountStrategy;
+import com.geppetto.MediRecords.util.CsvImporter;
+import com.geppetto.MediRecords.util.ExportFormat;
+import com.geppetto.MediRecords.util.ExportWriter;
+import com.geppetto.MediRecords.util.IdGenerator;
 import com.geppetto.MediRecords.util.PatientDetailsUtil;
+import com.geppetto.MediRecords.util.SearchMetrics;
+import com.geppetto.MediRecords.util.SearchOperator;
+import com.geppetto.MediRecords.util.TransactionUtil;
+import com.geppetto.MediRecords.util.WriteBehindWriter;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,6 +73,9 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class AppointmentServiceImpl implements AppointmentService {
 
+    private static final String IMPORT_ENTITY = "appointment";
+    private static final Set<String> IMPORT_OPTIONAL_COLUMNS = Set.of("starttime", "endtime");
+
     /**
      * Constructs a {@code AppointmentServiceImpl} with the specified DAO.
      *
@@ -38,26 +84,295 @@ public class AppointmentServiceImpl implements AppointmentService {
     private final AppointmentDao appointmentDao;
     private final AppointmentRepository appointmentRepository;
     private final PatientDetailsUtil patientDetailsUtil;
+    private final BatchProcessor batchProcessor;
+    private final IdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    private final SearchMetrics searchMetrics;
+    private final CsvImporter csvImporter;
+    private final DoctornameIndex doctornameIndex;
+    private final DoctorSchedule doctorSchedule;
+    private final WriteBehindWriter<AppointmentDto> appointmentWriteBehind;
+
+    @Value("${medirecords.schedule.day-start:08:00}")
+    private String dayStart;
+
+    @Value("${medirecords.schedule.day-end:18:00}")
+    private String dayEnd;
 
     /**
-     * Creates new appointment.
+     * Creates new appointment. If the DTO carries no ID, a time-ordered one is
+     * generated so the row is appended to the end of the primary-key index.
+     * A time slot is booked in the {@link DoctorSchedule} first, so two
+     * overlapping appointments of a doctor cannot both be created.
      *
      * @param appointmentDto The {@link AppointmentDto} to be created.
      * @return The created {@link AppointmentDto}.
+     * @throws ConflictException If the time slot overlaps another appointment
+     * of the doctor.
      */
     @Override
     public AppointmentDto createAppointment(AppointmentDto appointmentDto) {
         log.info("Entering createAppointment method");
 
+        appointmentDto.setId(idGenerator.assignId(appointmentDto.getId()));
         Appointment appointment = patientDetailsUtil.toEntity(appointmentDto);
-        Appointment createdAppointment = appointmentDao.createAppointment(appointment);
+        DoctorSchedule.Slot previous = doctorSchedule.get(appointment.getId());
+        reserveSlot(appointment);
+        Appointment createdAppointment;
+        try {
+            createdAppointment = appointmentDao.createAppointment(appointment);
+        } catch (RuntimeException e) {
+            doctorSchedule.restore(appointment.getId(), previous);
+            throw e;
+        }
+        doctornameIndex.put(createdAppointment.getId(), createdAppointment.getDoctorname());
         appointmentDto = patientDetailsUtil.toDto(createdAppointment);
         log.info("Exiting createAppointment method");
         return appointmentDto;
     }
 
     /**
-     * Retrieves appointment by its ID.
+     * Starts writing journaled appointments to the database, beginning with
+     * those a previous run left behind.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWriteBehind() {
+        appointmentWriteBehind.start(this::createAppointmentChunk, this::releaseRejectedAppointment);
+    }
+
+    @Override
+    public boolean isWriteBehindEnabled() {
+        return appointmentWriteBehind.isEnabled();
+    }
+
+    /**
+     * Accepts new appointment for write-behind: the time slot is booked as for
+     * {@link #createAppointment(AppointmentDto)}, then the appointment is
+     * appended to the local journal and written to the database in the
+     * background. Until then it is served from the pending buffer.
+     *
+     * @param appointmentDto The {@link AppointmentDto} to be created, already validated.
+     * @return The accepted {@link AppointmentDto}, with its ID.
+     * @throws ConflictException If the time slot overlaps another appointment
+     * of the doctor, or an appointment with the ID is already pending.
+     * @throws ServiceUnavailableException If too many appointments are waiting
+     * to be written, or if the appointment was queued but its journal record
+     * could not be forced to the disk. In the latter case it is still written
+     * and its time slot stays booked.
+     */
+    @Override
+    public AppointmentDto enqueueAppointment(AppointmentDto appointmentDto) {
+        log.info("Entering enqueueAppointment method");
+
+        appointmentDto.setId(idGenerator.assignId(appointmentDto.getId()));
+        if (appointmentDto.getId() == null || appointmentDto.getId().isBlank()) {
+            throw new MethodArgumentNotValidException("id cannot be null or empty");
+        }
+        appointmentDto.setVersion(0L);
+        Appointment appointment = patientDetailsUtil.toEntity(appointmentDto);
+        DoctorSchedule.Slot previous = doctorSchedule.get(appointment.getId());
+        reserveSlot(appointment);
+        try {
+            appointmentWriteBehind.accept(appointmentDto);
+        } catch (WriteBehindWriter.NotDurableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            doctorSchedule.restore(appointment.getId(), previous);
+            throw e;
+        }
+        log.info("Exiting enqueueAppointment method for ID: {}", appointmentDto.getId());
+        return appointmentDto;
+    }
+
+    /**
+     * Puts back the time slot of an appointment whose journaled create the
+     * database refused: the slot of the row that already has its ID, or none.
+     */
+    private void releaseRejectedAppointment(AppointmentDto appointmentDto) {
+        DoctorSchedule.Slot existing = appointmentDao.getAppointmentById(appointmentDto.getId())
+                .filter(appointment -> appointment.getStarttime() != null && appointment.getEndtime() != null)
+                .map(appointment -> new DoctorSchedule.Slot(appointment.getId(), appointment.getDoctorname(),
+                        appointment.getStarttime(), appointment.getEndtime()))
+                .orElse(null);
+        doctorSchedule.restore(appointmentDto.getId(), existing);
+    }
+
+    /**
+     * Creates a batch of appointment. Every item is validated first; valid items are
+     * inserted in JDBC batches, one transaction per chunk.
+     *
+     * @param appointmentDtos The {@link AppointmentDto} list to be created.
+     * @return The per-item outcome as a {@link BatchResultDto}.
+     */
+    @Override
+    public BatchResultDto createAppointmentBatch(List<AppointmentDto> appointmentDtos) {
+        log.info("Entering createAppointmentBatch method");
+        if (idGenerator.isEnabled() && appointmentDtos != null) {
+            appointmentDtos.stream()
+                    .filter(dto -> dto != null && (dto.getId() == null || dto.getId().isBlank()))
+                    .forEach(dto -> dto.setId(idGenerator.nextId()));
+        }
+        BatchResultDto result = batchProcessor.process(appointmentDtos, AppointmentDto::getId, this::createAppointmentChunk);
+        log.info("Exiting createAppointmentBatch method. Created: {}, rejected: {}, failed: {}",
+                result.getCreated(), result.getRejected(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Starts a background import of appointment from a CSV upload. Rows are
+     * validated like {@link #createAppointment(AppointmentDto)} input and inserted in
+     * chunks; rows that fail go to the job's reject report.
+     *
+     * @param csv The CSV file, with a header row naming the columns.
+     * @return The queued import job.
+     */
+    @Override
+    public ImportJobDto importAppointment(InputStream csv) {
+        log.info("Entering importAppointment method");
+        ImportJobDto job = csvImporter.submit(IMPORT_ENTITY, csv, AppointmentDto.class, Appointment.class,
+                IMPORT_OPTIONAL_COLUMNS, this::createAppointmentChunk);
+        log.info("Exiting importAppointment method. Job: {}", job.getId());
+        return job;
+    }
+
+    /**
+     * Retrieves the progress of a appointment import.
+     *
+     * @param jobId The ID of the import job.
+     * @return The rows read, imported and rejected so far, and the throughput.
+     * @throws EntityNotFoundException If no such job exists.
+     */
+    @Override
+    public ImportJobDto getAppointmentImport(String jobId) {
+        log.info("Entering getAppointmentImport method for job: {}", jobId);
+        ImportJobDto job = csvImporter.getJob(IMPORT_ENTITY, jobId);
+        log.info("Exiting getAppointmentImport method for job: {}", jobId);
+        return job;
+    }
+
+    /**
+     * Retrieves the reject report of a finished appointment import.
+     *
+     * @param jobId The ID of the import job.
+     * @return The rejected rows as CSV, with their line numbers and reasons.
+     * @throws EntityNotFoundException If no such job exists.
+     */
+    @Override
+    public Resource getAppointmentImportRejects(String jobId) {
+        log.info("Entering getAppointmentImportRejects method for job: {}", jobId);
+        Resource rejects = csvImporter.getRejects(IMPORT_ENTITY, jobId);
+        log.info("Exiting getAppointmentImportRejects method for job: {}", jobId);
+        return rejects;
+    }
+
+    private void createAppointmentChunk(List<AppointmentDto> chunk) {
+        List<Appointment> appointments = chunk.stream()
+                .map(patientDetailsUtil::toEntity)
+                .collect(Collectors.toList());
+        Map<String, DoctorSchedule.Slot> previous = new HashMap<>();
+        try {
+            for (Appointment appointment : appointments) {
+                previous.put(appointment.getId(), doctorSchedule.get(appointment.getId()));
+                reserveSlot(appointment);
+            }
+            appointmentDao.createAppointmentBatch(appointments)
+                    .forEach(appointment -> doctornameIndex.put(appointment.getId(), appointment.getDoctorname()));
+        } catch (RuntimeException e) {
+            previous.forEach(doctorSchedule::restore);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the free time of a doctor on a day, between
+     * {@code medirecords.schedule.day-start} and {@code day-end}. The booked
+     * slots come from the {@link DoctorSchedule} without a query; only until
+     * it is loaded does the database answer.
+     *
+     * @param doctorname The doctor.
+     * @param date The day.
+     * @param minutes The shortest free period to return, in minutes.
+     * @return The free periods in time order.
+     * @throws MethodArgumentNotValidException If the doctor name is empty or
+     * {@code minutes} is not positive.
+     */
+    @Override
+    public List<TimeSlotDto> getFreeSlots(String doctorname, LocalDate date, int minutes) {
+        log.info("Entering getFreeSlots method for doctor: {}", doctorname);
+        if (doctorname == null || doctorname.isBlank()) {
+            throw new MethodArgumentNotValidException("doctorname cannot be null or empty");
+        }
+        if (minutes <= 0) {
+            throw new MethodArgumentNotValidException("minutes must be positive");
+        }
+
+        LocalDateTime from = date.atTime(LocalTime.parse(dayStart));
+        LocalDateTime to = date.atTime(LocalTime.parse(dayEnd));
+        List<DoctorSchedule.Slot> booked = doctorSchedule.between(doctorname, from, to);
+        if (booked == null) {
+            log.info("Doctor schedule not loaded; reading booked slots from the database");
+            booked = appointmentDao.getAppointmentSlots(doctorname, from, to).stream()
+                    .map(row -> new DoctorSchedule.Slot((String) row[0], doctorname, (LocalDateTime) row[1], (LocalDateTime) row[2]))
+                    .collect(Collectors.toList());
+        }
+        Duration shortest = Duration.ofMinutes(minutes);
+        List<TimeSlotDto> free = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+        for (DoctorSchedule.Slot slot : booked) {
+            addFreeSlot(free, freeFrom, slot.starttime(), shortest);
+            if (slot.endtime().isAfter(freeFrom)) {
+                freeFrom = slot.endtime();
+            }
+        }
+        addFreeSlot(free, freeFrom, to, shortest);
+
+        log.info("Exiting getFreeSlots method for doctor: {}. Free slots: {}", doctorname, free.size());
+        return free;
+    }
+
+    private static void addFreeSlot(List<TimeSlotDto> free, LocalDateTime from, LocalDateTime to, Duration shortest) {
+        if (Duration.between(from, to).compareTo(shortest) >= 0) {
+            free.add(TimeSlotDto.builder().starttime(from).endtime(to).build());
+        }
+    }
+
+    /**
+     * Books the time slot of an appointment that is about to be written, or
+     * frees the one it held if it has none. Until the schedule is loaded the
+     * overlap check is made in the database.
+     *
+     * @throws MethodArgumentNotValidException If only one of the times is
+     * given, or the slot does not end after it starts.
+     * @throws ConflictException If the slot overlaps another appointment of
+     * the doctor.
+     */
+    private void reserveSlot(Appointment appointment) {
+        LocalDateTime starttime = appointment.getStarttime();
+        LocalDateTime endtime = appointment.getEndtime();
+        if (starttime == null && endtime == null) {
+            doctorSchedule.remove(appointment.getId());
+            return;
+        }
+        if (starttime == null || endtime == null || !endtime.isAfter(starttime)) {
+            throw new MethodArgumentNotValidException("starttime and endtime must be given together, with endtime after starttime");
+        }
+        String overlapping = doctorSchedule.isReady()
+                ? null
+                : appointmentDao.findOverlappingAppointment(appointment.getDoctorname(), starttime, endtime, appointment.getId()).orElse(null);
+        if (overlapping == null) {
+            overlapping = doctorSchedule.reserve(new DoctorSchedule.Slot(appointment.getId(), appointment.getDoctorname(), starttime, endtime));
+        }
+        if (overlapping != null) {
+            log.warn("Appointment {} of {} overlaps appointment {}", appointment.getId(), appointment.getDoctorname(), overlapping);
+            throw new ConflictException(appointment.getDoctorname() + " already has appointment " + overlapping
+                    + " between " + starttime + " and " + endtime);
+        }
+    }
+
+    /**
+     * Retrieves appointment by its ID. No transaction is opened here, so a
+     * cache hit never takes a connection; a miss is read in the repository's
+     * own read-only transaction.
      *
      * @param id The ID of the appointment to retrieve. Must not be
      * {@code null}.
@@ -69,6 +384,11 @@ public class AppointmentServiceImpl implements AppointmentService {
     @Override
     public AppointmentDto getAppointmentById(String id) {
         log.info("Entering getAppointmentById method for ID: {}", id);
+        AppointmentDto pending = appointmentWriteBehind.get(id);
+        if (pending != null) {
+            log.info("Exiting getAppointmentById method for ID: {}, not yet written", id);
+            return pending;
+        }
         return appointmentDao.getAppointmentById(id)
                 .map(appointment -> {
                     AppointmentDto dto = patientDetailsUtil.toDto(appointment);
@@ -82,34 +402,80 @@ public class AppointmentServiceImpl implements AppointmentService {
     }
 
     /**
-     * Retrieves all appointment.
+     * Retrieves one page of appointment. The page is read as a slice, one row past
+     * its end, and its total is then taken from the count strategy, so only
+     * {@link CountStrategy#EXACT} counts the table on every request.
      *
-     * @return A list of {@link AppointmentDto} representing all appointment.
+     * @param page The page number.
+     * @param size The page size.
+     * @param count The count strategy; {@code null} for the configured one.
+     * @return A {@link CountedPage} of {@link AppointmentDto}, or a {@link Slice}
+     * without a total for {@link CountStrategy#NONE}.
      */
+    @Transactional(readOnly = true)
     @Override
-    public Page<AppointmentDto> getAllAppointment(int page, int size) {
+    public Slice<AppointmentDto> getAllAppointment(int page, int size, String count) {
         log.info("Entering getAllAppointment method");
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Appointment> appointmentPage = appointmentDao.getAllAppointment(pageable);
-        Page<AppointmentDto> appointmentDtoPage = appointmentPage.map(appointment -> {
-            AppointmentDto dto = patientDetailsUtil.toDto(appointment);
-            return dto;
-        });
+        CountStrategy strategy = patientDetailsUtil.parseCountStrategy(count);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+        Slice<Appointment> appointmentSlice = appointmentDao.getAllAppointment(pageable);
+        Slice<AppointmentDto> appointmentDtoSlice = appointmentSlice.map(patientDetailsUtil::toDto);
+        Slice<AppointmentDto> appointmentDtoPage = patientDetailsUtil.toCountedPage(appointmentDtoSlice, strategy, appointmentDao::countAppointment);
         log.info("Exiting getAllAppointment method");
         return appointmentDtoPage;
     }
 
     /**
-     * Searches for appointment based on provided parameters.
+     * Retrieves appointment one page at a time using keyset (seek) paging on the
+     * primary key. Each page costs one index range scan, however deep the
+     * client has scrolled, and no count query is run.
+     *
+     * @param cursor The continuation token from the previous page, or
+     * {@code null} for the first page.
+     * @param size The requested page size, capped at the configured maximum.
+     * @return A {@link CursorPageDto} of {@link AppointmentDto} with the next cursor.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPageDto<AppointmentDto> getAllAppointmentByCursor(String cursor, int size) {
+        log.info("Entering getAllAppointmentByCursor method");
+        Pageable pageable = patientDetailsUtil.toKeysetPageable(size);
+        Slice<Appointment> appointmentSlice = appointmentDao.getAppointmentAfter(patientDetailsUtil.decodeCursor(cursor), pageable);
+        List<AppointmentDto> content = appointmentSlice.getContent().stream()
+                .map(patientDetailsUtil::toDto)
+                .collect(Collectors.toList());
+        String nextCursor = appointmentSlice.hasNext()
+                ? patientDetailsUtil.encodeCursor(content.get(content.size() - 1).getId())
+                : null;
+        log.info("Exiting getAllAppointmentByCursor method");
+        return CursorPageDto.<AppointmentDto>builder()
+                .content(content)
+                .size(content.size())
+                .hasNext(appointmentSlice.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Searches for appointment based on provided parameters. A
+     * {@code doctorname=contains:...} filter is resolved against the in-memory
+     * {@link DoctornameIndex} when possible, so the database only fetches the
+     * matching rows by ID instead of scanning with {@code LIKE '%x%'}.
      *
      * @param allParams A map of search parameters.
      * @return A list of {@link AppointmentDto} matching the search parameters.
      */
+    @Transactional(readOnly = true)
     @Override
     public List<AppointmentDto> searchAppointment(Map<String, String> allParams) {
         log.info("Entering searchAppointment method for SQL");
 
-        Specification<Appointment> specification = patientDetailsUtil.constructSearchQuery(allParams, Appointment.class);
+        Specification<Appointment> specification = constructIndexedSearchQuery(allParams);
+        if (specification == null) {
+            searchMetrics.recordResults(Appointment.class, 0);
+            log.info("Exiting searchAppointment method for SQL. Results found: 0");
+            return List.of();
+        }
         List<Appointment> results = appointmentRepository.findAll(specification);
         List<AppointmentDto> appointmentDtos = results.stream()
                 .map(appointment -> {
@@ -118,58 +484,333 @@ public class AppointmentServiceImpl implements AppointmentService {
                 })
                 .collect(Collectors.toList());
 
+        searchMetrics.recordResults(Appointment.class, appointmentDtos.size());
         log.info("Exiting searchAppointment method for SQL. Results found: {}", appointmentDtos.size());
         return appointmentDtos;
     }
 
     /**
-     * Updates existing appointment.
+     * Retrieves only the requested fields of appointment by its ID. The columns are
+     * selected directly, so no entity is loaded.
      *
-     * @param appointmentDto The {@link AppointmentDto} containing updated
-     * information.
-     * @return The updated {@link AppointmentDto}.
+     * @param id The ID of the appointment to retrieve. Must not be {@code null}.
+     * @param fields A comma-separated list of the fields to return.
+     * @return The requested fields keyed by name.
      * @throws EntityNotFoundException If no appointment with the specified ID
      * is found.
      */
+    @Transactional(readOnly = true)
     @Override
-    public AppointmentDto updateAppointment(AppointmentDto appointmentDto) {
-        log.info("Entering updateAppointment method for ID: {}", appointmentDto.getId());
-        return appointmentDao.getAppointmentById(appointmentDto.getId())
-                .map(existingAppointment -> {
-                    existingAppointment = patientDetailsUtil.toEntity(appointmentDto);
-                    Appointment updatedAppointment = appointmentDao.createAppointment(existingAppointment);
-                    AppointmentDto responseDto = patientDetailsUtil.toDto(updatedAppointment);
-                    log.info("Exiting updateAppointment method for ID: {}", appointmentDto.getId());
-                    return responseDto;
-                })
+    public Map<String, Object> getAppointmentFieldsById(String id, String fields) {
+        log.info("Entering getAppointmentFieldsById method for ID: {}", id);
+        List<String> selected = patientDetailsUtil.parseFields(fields, Appointment.class);
+        Map<String, Object> row = appointmentDao.getAppointmentFieldsById(id, selected)
                 .orElseThrow(() -> {
-                    log.warn("No appointment found for update with ID: {}", appointmentDto.getId());
-                    return new EntityNotFoundException("Data not found for update with ID: " + appointmentDto.getId());
+                    log.warn("No appointment found for ID: {}", id);
+                    return new EntityNotFoundException("Data not found for ID: " + id);
                 });
+        log.info("Exiting getAppointmentFieldsById method for ID: {}", id);
+        return row;
+    }
+
+    /**
+     * Retrieves one page of appointment with only the requested fields. The total
+     * is taken from the count strategy, as in {@link #getAllAppointment(int, int, String)}.
+     *
+     * @param page The page number.
+     * @param size The page size.
+     * @param fields A comma-separated list of the fields to return.
+     * @param count The count strategy; {@code null} for the configured one.
+     * @return A page, or for {@link CountStrategy#NONE} a slice, of rows
+     * holding the requested fields keyed by name.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Slice<Map<String, Object>> getAllAppointmentFields(int page, int size, String fields, String count) {
+        log.info("Entering getAllAppointmentFields method");
+        List<String> selected = patientDetailsUtil.parseFields(fields, Appointment.class);
+        CountStrategy strategy = patientDetailsUtil.parseCountStrategy(count);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+        Slice<Map<String, Object>> rows = appointmentDao.getAllAppointmentFields(selected, pageable);
+        Slice<Map<String, Object>> rowPage = patientDetailsUtil.toCountedPage(rows, strategy, appointmentDao::countAppointment);
+        log.info("Exiting getAllAppointmentFields method");
+        return rowPage;
     }
 
     /**
-     * Deletes appointment by ID.
+     * Searches for appointment and returns only the requested fields of each match.
+     * The {@code fields} parameter selects the columns; the remaining
+     * parameters filter as in {@link #searchAppointment(Map)}.
+     *
+     * @param allParams A map of search parameters, including {@code fields}.
+     * @return The matching rows holding the requested fields keyed by name.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<Map<String, Object>> searchAppointmentFields(Map<String, String> allParams) {
+        log.info("Entering searchAppointmentFields method for SQL");
+
+        List<String> selected = patientDetailsUtil.parseFields(allParams.get("fields"), Appointment.class);
+        Specification<Appointment> specification = constructIndexedSearchQuery(allParams);
+        if (specification == null) {
+            searchMetrics.recordResults(Appointment.class, 0);
+            log.info("Exiting searchAppointmentFields method for SQL. Results found: 0");
+            return List.of();
+        }
+        List<Map<String, Object>> rows = appointmentDao.getAppointmentFields(specification, selected, Pageable.unpaged());
+
+        searchMetrics.recordResults(Appointment.class, rows.size());
+        log.info("Exiting searchAppointmentFields method for SQL. Results found: {}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Builds the search specification, narrowing a
+     * {@code doctorname=contains:...} filter to the IDs the doctorname index
+     * finds. The index answers only once it is loaded and verified against
+     * the table; otherwise the plain {@code LIKE} query runs. The
+     * {@code LIKE} predicate is kept, so an index entry that is stale only
+     * costs a lookup of a row the query then filters out.
+     *
+     * @return The specification, or {@code null} if the index proves that
+     * nothing matches.
+     */
+    private Specification<Appointment> constructIndexedSearchQuery(Map<String, String> allParams) {
+        String doctorname = allParams.get("doctorname");
+        String containsPrefix = SearchOperator.CONTAINS.getToken() + ":";
+        if (doctorname == null || !doctorname.startsWith(containsPrefix)) {
+            return patientDetailsUtil.constructSearchQuery(allParams, Appointment.class);
+        }
+        List<String> ids = doctornameIndex.search(doctorname.substring(containsPrefix.length()));
+        if (ids == null) {
+            return patientDetailsUtil.constructSearchQuery(allParams, Appointment.class);
+        }
+        if (ids.isEmpty()) {
+            return null;
+        }
+        Specification<Appointment> idFilter = (root, query, criteriaBuilder) -> root.get("id").in(ids);
+        return patientDetailsUtil.constructSearchQuery(allParams, Appointment.class).and(idFilter);
+    }
+
+    /**
+     * Streams the appointment matching the search parameters as newline-delimited
+     * JSON. Each row is read from a database cursor, written to the output
+     * and discarded, so memory use does not depend on the number of matches.
+     *
+     * @param allParams A map of search parameters.
+     * @param outputStream The response body to write to.
+     * @return The number of rows written.
+     */
+    @Override
+    public long streamSearchAppointment(Map<String, String> allParams, OutputStream outputStream) {
+        log.info("Entering streamSearchAppointment method for SQL");
+
+        Specification<Appointment> specification = patientDetailsUtil.constructSearchQuery(allParams, Appointment.class);
+        ObjectWriter writer = objectMapper.writerFor(AppointmentDto.class);
+        long count = appointmentDao.streamAppointment(specification, appointment -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(patientDetailsUtil.toDto(appointment)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        searchMetrics.recordStreamed(Appointment.class, count);
+        log.info("Exiting streamSearchAppointment method for SQL. Rows streamed: {}", count);
+        return count;
+    }
+
+    /**
+     * Exports every appointment matching the search parameters as CSV or NDJSON
+     * ({@code format=}), with all fields or only those named in
+     * {@code fields=}. The rows are read from one database cursor and
+     * written as they arrive, so memory use does not depend on the size of
+     * the table, and there is no row limit.
+     *
+     * @param allParams The search parameters, plus {@code format} and {@code fields}.
+     * @param output Opens the response body for the chosen format; called
+     * once the query has been accepted by the database.
+     * @return The number of rows exported.
+     */
+    @Override
+    public long exportAppointment(Map<String, String> allParams, Function<ExportFormat, OutputStream> output) {
+        log.info("Entering exportAppointment method");
+
+        ExportFormat format = ExportFormat.fromToken(allParams.get("format"));
+        String fields = allParams.get("fields");
+        List<String> columns = fields == null
+                ? patientDetailsUtil.fieldNames(Appointment.class)
+                : patientDetailsUtil.parseFields(fields, Appointment.class);
+        Specification<Appointment> specification = patientDetailsUtil.constructSearchQuery(allParams, Appointment.class);
+        ExportWriter writer = new ExportWriter(format, columns, () -> output.apply(format), objectMapper);
+        long count = appointmentDao.exportAppointment(specification, columns, writer::writeHeader, writer::writeRow);
+        writer.finish();
+
+        searchMetrics.recordExported(Appointment.class, count);
+        log.info("Exiting exportAppointment method. Rows exported: {}", count);
+        return count;
+    }
+
+    /**
+     * Updates existing appointment with a single {@code UPDATE} statement. The
+     * row is not read first; an update count of zero means it does not exist
+     * or, for a conditional update, that another update got there first.
+     *
+     * @param appointmentDto The {@link AppointmentDto} containing updated
+     * information.
+     * @param expectedVersion The version from {@code If-Match}, or
+     * {@code null} to update unconditionally.
+     * @return The updated {@link AppointmentDto}, with its new version for a
+     * conditional update; an unconditional update does not read it back, so
+     * the version is {@code null}.
+     * @throws EntityNotFoundException If no appointment with the specified
+     * ID is found.
+     * @throws PreconditionFailedException If the appointment is no longer at the
+     * expected version.
+     * @throws ConflictException If the new time slot overlaps another
+     * appointment of the doctor.
+     */
+    @Override
+    public AppointmentDto updateAppointment(AppointmentDto appointmentDto, Long expectedVersion) {
+        log.info("Entering updateAppointment method for ID: {}", appointmentDto.getId());
+        if (appointmentDto.getId() == null || appointmentDto.getId().isBlank()) {
+            throw new MethodArgumentNotValidException("id cannot be null or empty");
+        }
+        appointmentWriteBehind.awaitFlushed(appointmentDto.getId());
+
+        Appointment appointment = patientDetailsUtil.toEntity(appointmentDto);
+        DoctorSchedule.Slot previous = doctorSchedule.get(appointment.getId());
+        reserveSlot(appointment);
+        try {
+            if (appointmentDao.updateAppointmentById(appointment, expectedVersion) == 0) {
+                checkVersion(appointmentDto.getId(), expectedVersion);
+                log.warn("No appointment found for update with ID: {}", appointmentDto.getId());
+                throw new EntityNotFoundException("Data not found for update with ID: " + appointmentDto.getId());
+            }
+        } catch (RuntimeException e) {
+            doctorSchedule.restore(appointment.getId(), previous);
+            throw e;
+        }
+        doctornameIndex.put(appointment.getId(), appointment.getDoctorname());
+        AppointmentDto responseDto = patientDetailsUtil.toDto(appointment);
+        responseDto.setVersion(expectedVersion == null ? null : expectedVersion + 1);
+        log.info("Exiting updateAppointment method for ID: {}", appointmentDto.getId());
+        return responseDto;
+    }
+
+    /**
+     * Partially updates existing appointment, writing only the given columns
+     * with a single {@code UPDATE} statement.
+     *
+     * @param id The ID of the appointment to patch.
+     * @param changes The new values keyed by field name.
+     * @param expectedVersion The version from {@code If-Match}, or
+     * {@code null} to patch unconditionally.
+     * @return A message indicating the result of the patch.
+     * @throws EntityNotFoundException If no appointment with the specified
+     * ID is found.
+     * @throws PreconditionFailedException If the appointment is no longer at the
+     * expected version.
+     * @throws ConflictException If the patched time slot overlaps another
+     * appointment of the doctor.
+     */
+    @Transactional
+    @Override
+    public String patchAppointment(String id, Map<String, Object> changes, Long expectedVersion) {
+        log.info("Entering patchAppointment method for ID: {}", id);
+        appointmentWriteBehind.awaitFlushed(id);
+
+        Map<String, Object> values = patientDetailsUtil.toPatchValues(changes, Appointment.class);
+        DoctorSchedule.Slot previous = doctorSchedule.get(id);
+        boolean slotChanged = values.containsKey("doctorname") || values.containsKey("starttime") || values.containsKey("endtime");
+        Optional<Appointment> patched = slotChanged ? appointmentDao.lockAppointment(id) : Optional.empty();
+        patched.ifPresent(appointment -> {
+            appointment.setDoctorname((String) values.getOrDefault("doctorname", appointment.getDoctorname()));
+            appointment.setStarttime((LocalDateTime) values.getOrDefault("starttime", appointment.getStarttime()));
+            appointment.setEndtime((LocalDateTime) values.getOrDefault("endtime", appointment.getEndtime()));
+            reserveSlot(appointment);
+        });
+        try {
+            if (appointmentDao.patchAppointment(id, values, expectedVersion) == 0) {
+                checkVersion(id, expectedVersion);
+                log.warn("No appointment found for patch with ID: {}", id);
+                throw new EntityNotFoundException("Data not found for patch with ID: " + id);
+            }
+        } catch (RuntimeException e) {
+            if (patched.isPresent()) {
+                doctorSchedule.restore(id, previous);
+            }
+            throw e;
+        }
+        if (values.containsKey("doctorname")) {
+            String doctorname = (String) values.get("doctorname");
+            TransactionUtil.afterCommit(() -> doctornameIndex.put(id, doctorname));
+        }
+        log.info("Exiting patchAppointment method for ID: {}", id);
+        return "Appointment patched successfully";
+    }
+
+    /**
+     * Deletes appointment by ID with a single {@code DELETE} statement.
      *
      * @param id The ID of the appointment to delete.
+     * @param expectedVersion The version from {@code If-Match}, or
+     * {@code null} to delete unconditionally.
      * @return A message indicating the result of the deletion.
-     * @throws EntityNotFoundException If no appointment with the specified ID
-     * is found.
+     * @throws EntityNotFoundException If no appointment with the specified
+     * ID is found.
+     * @throws PreconditionFailedException If the appointment is no longer at the
+     * expected version.
      */
     @Override
-    public String deleteAppointment(String id) {
+    public String deleteAppointment(String id, Long expectedVersion) {
         log.info("Entering deleteAppointment method for ID: {}", id);
+        appointmentWriteBehind.awaitFlushed(id);
 
-        appointmentDao.getAppointmentById(id)
-                .orElseThrow(() -> {
-                    log.warn("No appointment found with ID: {}. Deletion failed.", id);
-                    return new EntityNotFoundException("No appointment found with ID: " + id + ". Unable to delete.");
-                });
-
-        appointmentDao.deleteAppointment(id);
+        if (appointmentDao.deleteAppointment(id, expectedVersion) == 0) {
+            checkVersion(id, expectedVersion);
+            log.warn("No appointment found with ID: {}. Deletion failed.", id);
+            throw new EntityNotFoundException("No appointment found with ID: " + id + ". Unable to delete.");
+        }
+        doctornameIndex.remove(id);
+        doctorSchedule.remove(id);
         log.info("Successfully deleted Appointment with ID: {}", id);
 
         return "Appointment deleted successfully";
     }
 
+    /**
+     * Retrieves the version of appointment by its ID without loading the row, to
+     * answer conditional requests.
+     *
+     * @param id The ID of the appointment.
+     * @return The current version.
+     * @throws EntityNotFoundException If no appointment with the specified ID is
+     * found.
+     */
+    @Override
+    public long getAppointmentVersion(String id) {
+        log.info("Entering getAppointmentVersion method for ID: {}", id);
+        AppointmentDto pending = appointmentWriteBehind.get(id);
+        if (pending != null) {
+            return pending.getVersion();
+        }
+        long version = appointmentDao.getAppointmentVersion(id)
+                .orElseThrow(() -> new EntityNotFoundException("Data not found for ID: " + id));
+        log.info("Exiting getAppointmentVersion method for ID: {}", id);
+        return version;
+    }
+
+    /**
+     * Tells a conditional write that matched no row because the version
+     * moved on apart from one whose row does not exist.
+     */
+    private void checkVersion(String id, Long expectedVersion) {
+        if (expectedVersion != null && appointmentDao.getAppointmentVersion(id).isPresent()) {
+            log.warn("Appointment with ID: {} is no longer at version {}", id, expectedVersion);
+            throw new PreconditionFailedException("Appointment with ID: " + id + " is no longer at version " + expectedVersion);
+        }
+    }
+
 }
@@ -1,24 +1,53 @@
 package com.geppetto.MediRecords.service.serviceimpl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 // import org.springframework.beans.BeanUtils;
-import org.springframework.data.domain.Page;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import com.geppetto.MediRecords.dao.BillingdetailsDao;
+import com.geppetto.MediRecords.dto.BatchResultDto;
+import com.geppetto.MediRecords.dto.BillingStatusCountsDto;
+import com.geppetto.MediRecords.dto.CountedPage;
+import com.geppetto.MediRecords.dto.CursorPageDto;
+import com.geppetto.MediRecords.dto.ImportJobDto;
 import com.geppetto.MediRecords.dto.BillingdetailsDto;
 import com.geppetto.MediRecords.exception.EntityNotFoundException;
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+import com.geppetto.MediRecords.exception.PreconditionFailedException;
+import com.geppetto.MediRecords.index.BillingStatusCounts;
 // import com.geppetto.MediRecords.model.Appointment;
 import com.geppetto.MediRecords.model.Billingdetails;
 import com.geppetto.MediRecords.repository.BillingdetailsRepository;
 import com.geppetto.MediRecords.service.BillingdetailsService;
+import com.geppetto.MediRecords.util.BatchProcessor;
+import com.geppetto.MediRecords.util.CountStrategy;
+import com.geppetto.MediRecords.util.CsvImporter;
+import com.geppetto.MediRecords.util.ExportFormat;
+import com.geppetto.MediRecords.util.ExportWriter;
+import com.geppetto.MediRecords.util.IdGenerator;
 import com.geppetto.MediRecords.util.PatientDetailsUtil;
+import com.geppetto.MediRecords.util.SearchMetrics;
+import com.geppetto.MediRecords.util.TransactionUtil;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +62,8 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class BillingdetailsServiceImpl implements BillingdetailsService {
 
+    private static final String IMPORT_ENTITY = "billingdetails";
+
     /**
      * Constructs a {@code BillingdetailsServiceImpl} with the specified DAO.
      *
@@ -41,9 +72,16 @@ public class BillingdetailsServiceImpl implements BillingdetailsService {
     private final BillingdetailsDao billingdetailsDao;
     private final BillingdetailsRepository billingdetailsRepository;
     private final PatientDetailsUtil patientDetailsUtil;
+    private final BatchProcessor batchProcessor;
+    private final IdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    private final SearchMetrics searchMetrics;
+    private final CsvImporter csvImporter;
+    private final BillingStatusCounts billingStatusCounts;
 
     /**
-     * Creates new billingdetails.
+     * Creates new billingdetails. If the DTO carries no ID, a time-ordered one is
+     * generated so the row is appended to the end of the primary-key index.
      *
      * @param billingdetailsDto The {@link BillingdetailsDto} to be created.
      * @return The created {@link BillingdetailsDto}.
@@ -52,8 +90,10 @@ public class BillingdetailsServiceImpl implements BillingdetailsService {
     public BillingdetailsDto createBillingdetails(BillingdetailsDto billingdetailsDto) {
         log.info("Entering createBillingdetails method");
 
+        billingdetailsDto.setId(idGenerator.assignId(billingdetailsDto.getId()));
         Billingdetails billingdetails = patientDetailsUtil.toEntity(billingdetailsDto);
         Billingdetails createdBillingdetails = billingdetailsDao.createBillingdetails(billingdetails);
+        TransactionUtil.afterCommit(() -> billingStatusCounts.add(createdBillingdetails.getPatientid(), createdBillingdetails.getPaymentstatus()));
         billingdetailsDto = patientDetailsUtil.toDto(createdBillingdetails);
 
         log.info("Exiting createBillingdetails method");
@@ -61,7 +101,145 @@ public class BillingdetailsServiceImpl implements BillingdetailsService {
     }
 
     /**
-     * Retrieves billingdetails by its ID.
+     * Creates a batch of billingdetails. Every item is validated first; valid items are
+     * inserted in JDBC batches, one transaction per chunk.
+     *
+     * @param billingdetailsDtos The {@link BillingdetailsDto} list to be created.
+     * @return The per-item outcome as a {@link BatchResultDto}.
+     */
+    @Override
+    public BatchResultDto createBillingdetailsBatch(List<BillingdetailsDto> billingdetailsDtos) {
+        log.info("Entering createBillingdetailsBatch method");
+        if (idGenerator.isEnabled() && billingdetailsDtos != null) {
+            billingdetailsDtos.stream()
+                    .filter(dto -> dto != null && (dto.getId() == null || dto.getId().isBlank()))
+                    .forEach(dto -> dto.setId(idGenerator.nextId()));
+        }
+        BatchResultDto result = batchProcessor.process(billingdetailsDtos, BillingdetailsDto::getId, this::createBillingdetailsChunk);
+        log.info("Exiting createBillingdetailsBatch method. Created: {}, rejected: {}, failed: {}",
+                result.getCreated(), result.getRejected(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Starts a background import of billingdetails from a CSV upload. Rows are
+     * validated like {@link #createBillingdetails(BillingdetailsDto)} input and inserted in
+     * chunks; rows that fail go to the job's reject report.
+     *
+     * @param csv The CSV file, with a header row naming the columns.
+     * @return The queued import job.
+     */
+    @Override
+    public ImportJobDto importBillingdetails(InputStream csv) {
+        log.info("Entering importBillingdetails method");
+        ImportJobDto job = csvImporter.submit(IMPORT_ENTITY, csv, BillingdetailsDto.class, Billingdetails.class,
+                Set.of(), this::createBillingdetailsChunk);
+        log.info("Exiting importBillingdetails method. Job: {}", job.getId());
+        return job;
+    }
+
+    /**
+     * Retrieves the progress of a billingdetails import.
+     *
+     * @param jobId The ID of the import job.
+     * @return The rows read, imported and rejected so far, and the throughput.
+     * @throws EntityNotFoundException If no such job exists.
+     */
+    @Override
+    public ImportJobDto getBillingdetailsImport(String jobId) {
+        log.info("Entering getBillingdetailsImport method for job: {}", jobId);
+        ImportJobDto job = csvImporter.getJob(IMPORT_ENTITY, jobId);
+        log.info("Exiting getBillingdetailsImport method for job: {}", jobId);
+        return job;
+    }
+
+    /**
+     * Retrieves the reject report of a finished billingdetails import.
+     *
+     * @param jobId The ID of the import job.
+     * @return The rejected rows as CSV, with their line numbers and reasons.
+     * @throws EntityNotFoundException If no such job exists.
+     */
+    @Override
+    public Resource getBillingdetailsImportRejects(String jobId) {
+        log.info("Entering getBillingdetailsImportRejects method for job: {}", jobId);
+        Resource rejects = csvImporter.getRejects(IMPORT_ENTITY, jobId);
+        log.info("Exiting getBillingdetailsImportRejects method for job: {}", jobId);
+        return rejects;
+    }
+
+    private void createBillingdetailsChunk(List<BillingdetailsDto> chunk) {
+        List<Billingdetails> created = billingdetailsDao.createBillingdetailsBatch(chunk.stream()
+                .map(patientDetailsUtil::toEntity)
+                .collect(Collectors.toList()));
+        TransactionUtil.afterCommit(() -> created.forEach(
+                billingdetails -> billingStatusCounts.add(billingdetails.getPatientid(), billingdetails.getPaymentstatus())));
+    }
+
+    /**
+     * Counts billingdetails per {@code paymentstatus}, of all patients or of
+     * one, and optionally per patient as well. The counts come from
+     * {@link BillingStatusCounts} without a query; only until its counters
+     * are loaded does the database answer, with a {@code GROUP BY}.
+     *
+     * @param patientid The patient whose billingdetails to count, or
+     * {@code null} for all patients.
+     * @param groupBy {@code patientid} to also count per patient, or
+     * {@code null}; only valid without {@code patientid}.
+     * @return The counts and their total.
+     * @throws MethodArgumentNotValidException If {@code groupBy} is not
+     * {@code patientid}, or is combined with {@code patientid}.
+     */
+    @Override
+    public BillingStatusCountsDto getBillingStatusCounts(Integer patientid, String groupBy) {
+        log.info("Entering getBillingStatusCounts method for patientid: {}", patientid);
+        boolean byPatient = groupBy != null;
+        if (byPatient && !"patientid".equals(groupBy)) {
+            throw new MethodArgumentNotValidException("groupBy must be patientid");
+        }
+        if (byPatient && patientid != null) {
+            throw new MethodArgumentNotValidException("groupBy cannot be combined with patientid");
+        }
+
+        Map<String, Long> counts = patientid == null ? billingStatusCounts.byPaymentstatus() : billingStatusCounts.byPaymentstatus(patientid);
+        Map<Integer, Map<String, Long>> patientCounts = byPatient ? billingStatusCounts.byPatientidAndPaymentstatus() : null;
+        if (counts == null || (byPatient && patientCounts == null)) {
+            log.info("Billing status counts not loaded; counting in the database");
+            if (byPatient) {
+                patientCounts = new TreeMap<>();
+                counts = new TreeMap<>();
+                for (Object[] row : billingdetailsDao.countBillingdetailsByPatientidAndPaymentstatus()) {
+                    String status = statusKey(row[1]);
+                    long count = ((Number) row[2]).longValue();
+                    patientCounts.computeIfAbsent(((Number) row[0]).intValue(), key -> new TreeMap<>()).merge(status, count, Long::sum);
+                    counts.merge(status, count, Long::sum);
+                }
+            } else {
+                counts = new TreeMap<>();
+                for (Object[] row : billingdetailsDao.countBillingdetailsByPaymentstatus(patientid)) {
+                    counts.merge(statusKey(row[0]), ((Number) row[1]).longValue(), Long::sum);
+                }
+            }
+        }
+
+        BillingStatusCountsDto result = BillingStatusCountsDto.builder()
+                .patientid(patientid)
+                .total(counts.values().stream().mapToLong(Long::longValue).sum())
+                .byPaymentstatus(counts)
+                .byPatientid(patientCounts)
+                .build();
+        log.info("Exiting getBillingStatusCounts method for patientid: {}", patientid);
+        return result;
+    }
+
+    private static String statusKey(Object paymentstatus) {
+        return paymentstatus == null ? BillingStatusCounts.NO_STATUS : (String) paymentstatus;
+    }
+
+    /**
+     * Retrieves billingdetails by its ID. No transaction is opened here, so a
+     * cache hit never takes a connection; a miss is read in the repository's
+     * own read-only transaction.
      *
      * @param id The ID of the billingdetails to retrieve. Must not be
      * {@code null}.
@@ -86,24 +264,60 @@ public class BillingdetailsServiceImpl implements BillingdetailsService {
     }
 
     /**
-     * Retrieves all billingdetails.
+     * Retrieves one page of billingdetails. The page is read as a slice, one row past
+     * its end, and its total is then taken from the count strategy, so only
+     * {@link CountStrategy#EXACT} counts the table on every request.
      *
-     * @return A list of {@link BillingdetailsDto} representing all
-     * billingdetails.
+     * @param page The page number.
+     * @param size The page size.
+     * @param count The count strategy; {@code null} for the configured one.
+     * @return A {@link CountedPage} of {@link BillingdetailsDto}, or a {@link Slice}
+     * without a total for {@link CountStrategy#NONE}.
      */
+    @Transactional(readOnly = true)
     @Override
-    public Page<BillingdetailsDto> getAllBillingdetails(int page, int size) {
+    public Slice<BillingdetailsDto> getAllBillingdetails(int page, int size, String count) {
         log.info("Entering getAllBillingdetails method");
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Billingdetails> billingdetailsPage = billingdetailsDao.getAllBillingdetails(pageable);
-        Page<BillingdetailsDto> billingdetailsDtoPage = billingdetailsPage.map(billingdetails -> {
-            BillingdetailsDto dto = patientDetailsUtil.toDto(billingdetails);
-            return dto;
-        });
+        CountStrategy strategy = patientDetailsUtil.parseCountStrategy(count);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+        Slice<Billingdetails> billingdetailsSlice = billingdetailsDao.getAllBillingdetails(pageable);
+        Slice<BillingdetailsDto> billingdetailsDtoSlice = billingdetailsSlice.map(patientDetailsUtil::toDto);
+        Slice<BillingdetailsDto> billingdetailsDtoPage = patientDetailsUtil.toCountedPage(billingdetailsDtoSlice, strategy, billingdetailsDao::countBillingdetails);
         log.info("Exiting getAllBillingdetails method");
         return billingdetailsDtoPage;
     }
 
+    /**
+     * Retrieves billingdetails one page at a time using keyset (seek) paging on the
+     * primary key. Each page costs one index range scan, however deep the
+     * client has scrolled, and no count query is run.
+     *
+     * @param cursor The continuation token from the previous page, or
+     * {@code null} for the first page.
+     * @param size The requested page size, capped at the configured maximum.
+     * @return A {@link CursorPageDto} of {@link BillingdetailsDto} with the next cursor.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPageDto<BillingdetailsDto> getAllBillingdetailsByCursor(String cursor, int size) {
+        log.info("Entering getAllBillingdetailsByCursor method");
+        Pageable pageable = patientDetailsUtil.toKeysetPageable(size);
+        Slice<Billingdetails> billingdetailsSlice = billingdetailsDao.getBillingdetailsAfter(patientDetailsUtil.decodeCursor(cursor), pageable);
+        List<BillingdetailsDto> content = billingdetailsSlice.getContent().stream()
+                .map(patientDetailsUtil::toDto)
+                .collect(Collectors.toList());
+        String nextCursor = billingdetailsSlice.hasNext()
+                ? patientDetailsUtil.encodeCursor(content.get(content.size() - 1).getId())
+                : null;
+        log.info("Exiting getAllBillingdetailsByCursor method");
+        return CursorPageDto.<BillingdetailsDto>builder()
+                .content(content)
+                .size(content.size())
+                .hasNext(billingdetailsSlice.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     /**
      * Searches for billingdetails based on provided parameters.
      *
@@ -111,6 +325,7 @@ public class BillingdetailsServiceImpl implements BillingdetailsService {
      * @return A list of {@link BillingdetailsDto} matching the search
      * parameters.
      */
+    @Transactional(readOnly = true)
     @Override
     public List<BillingdetailsDto> searchBillingdetails(Map<String, String> allParams) {
         log.info("Entering searchBillingdetails method for SQL");
@@ -124,59 +339,266 @@ public class BillingdetailsServiceImpl implements BillingdetailsService {
                 })
                 .collect(Collectors.toList());
 
+        searchMetrics.recordResults(Billingdetails.class, billingdetailsDtos.size());
         log.info("Exiting searchBillingdetails method for SQL. Results found: {}", billingdetailsDtos.size());
         return billingdetailsDtos;
     }
 
     /**
-     * Updates existing billingdetails.
+     * Retrieves only the requested fields of billingdetails by its ID. The columns are
+     * selected directly, so no entity is loaded.
+     *
+     * @param id The ID of the billingdetails to retrieve. Must not be {@code null}.
+     * @param fields A comma-separated list of the fields to return.
+     * @return The requested fields keyed by name.
+     * @throws EntityNotFoundException If no billingdetails with the specified ID
+     * is found.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Map<String, Object> getBillingdetailsFieldsById(String id, String fields) {
+        log.info("Entering getBillingdetailsFieldsById method for ID: {}", id);
+        List<String> selected = patientDetailsUtil.parseFields(fields, Billingdetails.class);
+        Map<String, Object> row = billingdetailsDao.getBillingdetailsFieldsById(id, selected)
+                .orElseThrow(() -> {
+                    log.warn("No billingdetails found for ID: {}", id);
+                    return new EntityNotFoundException("Data not found for ID: " + id);
+                });
+        log.info("Exiting getBillingdetailsFieldsById method for ID: {}", id);
+        return row;
+    }
+
+    /**
+     * Retrieves one page of billingdetails with only the requested fields. The total
+     * is taken from the count strategy, as in {@link #getAllBillingdetails(int, int, String)}.
+     *
+     * @param page The page number.
+     * @param size The page size.
+     * @param fields A comma-separated list of the fields to return.
+     * @param count The count strategy; {@code null} for the configured one.
+     * @return A page, or for {@link CountStrategy#NONE} a slice, of rows
+     * holding the requested fields keyed by name.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Slice<Map<String, Object>> getAllBillingdetailsFields(int page, int size, String fields, String count) {
+        log.info("Entering getAllBillingdetailsFields method");
+        List<String> selected = patientDetailsUtil.parseFields(fields, Billingdetails.class);
+        CountStrategy strategy = patientDetailsUtil.parseCountStrategy(count);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+        Slice<Map<String, Object>> rows = billingdetailsDao.getAllBillingdetailsFields(selected, pageable);
+        Slice<Map<String, Object>> rowPage = patientDetailsUtil.toCountedPage(rows, strategy, billingdetailsDao::countBillingdetails);
+        log.info("Exiting getAllBillingdetailsFields method");
+        return rowPage;
+    }
+
+    /**
+     * Searches for billingdetails and returns only the requested fields of each match.
+     * The {@code fields} parameter selects the columns; the remaining
+     * parameters filter as in {@link #searchBillingdetails(Map)}.
+     *
+     * @param allParams A map of search parameters, including {@code fields}.
+     * @return The matching rows holding the requested fields keyed by name.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<Map<String, Object>> searchBillingdetailsFields(Map<String, String> allParams) {
+        log.info("Entering searchBillingdetailsFields method for SQL");
+
+        List<String> selected = patientDetailsUtil.parseFields(allParams.get("fields"), Billingdetails.class);
+        Specification<Billingdetails> specification = patientDetailsUtil.constructSearchQuery(allParams, Billingdetails.class);
+        List<Map<String, Object>> rows = billingdetailsDao.getBillingdetailsFields(specification, selected, Pageable.unpaged());
+
+        searchMetrics.recordResults(Billingdetails.class, rows.size());
+        log.info("Exiting searchBillingdetailsFields method for SQL. Results found: {}", rows.size());
+        return rows;
+    }
+
+    /**
+     * Streams the billingdetails matching the search parameters as newline-delimited
+     * JSON. Each row is read from a database cursor, written to the output
+     * and discarded, so memory use does not depend on the number of matches.
+     *
+     * @param allParams A map of search parameters.
+     * @param outputStream The response body to write to.
+     * @return The number of rows written.
+     */
+    @Override
+    public long streamSearchBillingdetails(Map<String, String> allParams, OutputStream outputStream) {
+        log.info("Entering streamSearchBillingdetails method for SQL");
+
+        Specification<Billingdetails> specification = patientDetailsUtil.constructSearchQuery(allParams, Billingdetails.class);
+        ObjectWriter writer = objectMapper.writerFor(BillingdetailsDto.class);
+        long count = billingdetailsDao.streamBillingdetails(specification, billingdetails -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(patientDetailsUtil.toDto(billingdetails)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        searchMetrics.recordStreamed(Billingdetails.class, count);
+        log.info("Exiting streamSearchBillingdetails method for SQL. Rows streamed: {}", count);
+        return count;
+    }
+
+    /**
+     * Exports every billingdetails matching the search parameters as CSV or NDJSON
+     * ({@code format=}), with all fields or only those named in
+     * {@code fields=}. The rows are read from one database cursor and
+     * written as they arrive, so memory use does not depend on the size of
+     * the table, and there is no row limit.
+     *
+     * @param allParams The search parameters, plus {@code format} and {@code fields}.
+     * @param output Opens the response body for the chosen format; called
+     * once the query has been accepted by the database.
+     * @return The number of rows exported.
+     */
+    @Override
+    public long exportBillingdetails(Map<String, String> allParams, Function<ExportFormat, OutputStream> output) {
+        log.info("Entering exportBillingdetails method");
+
+        ExportFormat format = ExportFormat.fromToken(allParams.get("format"));
+        String fields = allParams.get("fields");
+        List<String> columns = fields == null
+                ? patientDetailsUtil.fieldNames(Billingdetails.class)
+                : patientDetailsUtil.parseFields(fields, Billingdetails.class);
+        Specification<Billingdetails> specification = patientDetailsUtil.constructSearchQuery(allParams, Billingdetails.class);
+        ExportWriter writer = new ExportWriter(format, columns, () -> output.apply(format), objectMapper);
+        long count = billingdetailsDao.exportBillingdetails(specification, columns, writer::writeHeader, writer::writeRow);
+        writer.finish();
+
+        searchMetrics.recordExported(Billingdetails.class, count);
+        log.info("Exiting exportBillingdetails method. Rows exported: {}", count);
+        return count;
+    }
+
+    /**
+     * Updates existing billingdetails with a single {@code UPDATE} statement. The
+     * row is not read first; an update count of zero means it does not exist
+     * or, for a conditional update, that another update got there first.
      *
      * @param billingdetailsDto The {@link BillingdetailsDto} containing updated
      * information.
-     * @return The updated {@link BillingdetailsDto}.
+     * @param expectedVersion The version from {@code If-Match}, or
+     * {@code null} to update unconditionally.
+     * @return The updated {@link BillingdetailsDto}, with its new version
+     * for a conditional update. An unconditional update does not know it
+     * without reading it back, so the version is {@code null}.
      * @throws EntityNotFoundException If no billingdetails with the specified
      * ID is found.
+     * @throws PreconditionFailedException If the billingdetails is no longer at the
+     * expected version.
      */
+    @Transactional
     @Override
-    public BillingdetailsDto updateBillingdetails(BillingdetailsDto billingdetailsDto) {
+    public BillingdetailsDto updateBillingdetails(BillingdetailsDto billingdetailsDto, Long expectedVersion) {
         log.info("Entering updateBillingdetails method for ID: {}", billingdetailsDto.getId());
+        if (billingdetailsDto.getId() == null || billingdetailsDto.getId().isBlank()) {
+            throw new MethodArgumentNotValidException("id cannot be null or empty");
+        }
 
-        return billingdetailsDao.getBillingdetailsById(billingdetailsDto.getId())
-                .map(existingBillingdetails -> {
-                    existingBillingdetails = patientDetailsUtil.toEntity(billingdetailsDto);
-                    Billingdetails updatedBillingdetails = billingdetailsDao.createBillingdetails(existingBillingdetails);
-                    BillingdetailsDto responseDto = patientDetailsUtil.toDto(updatedBillingdetails);
-                    log.info("Exiting updateBillingdetails method for ID: {}", billingdetailsDto.getId());
-                    return responseDto;
-                })
-                .orElseThrow(() -> {
-                    log.warn("No billingdetails found for update with ID: {}", billingdetailsDto.getId());
-                    return new EntityNotFoundException("Data not found for update with ID: " + billingdetailsDto.getId());
-                });
+        Billingdetails billingdetails = patientDetailsUtil.toEntity(billingdetailsDto);
+        if (billingdetailsDao.updateBillingdetailsById(billingdetails, expectedVersion) == 0) {
+            checkVersion(billingdetailsDto.getId(), expectedVersion);
+            log.warn("No billingdetails found for update with ID: {}", billingdetailsDto.getId());
+            throw new EntityNotFoundException("Data not found for update with ID: " + billingdetailsDto.getId());
+        }
+        TransactionUtil.afterCommit(billingStatusCounts::changed);
+        BillingdetailsDto responseDto = patientDetailsUtil.toDto(billingdetails);
+        responseDto.setVersion(expectedVersion == null ? null : expectedVersion + 1);
+        log.info("Exiting updateBillingdetails method for ID: {}", billingdetailsDto.getId());
+        return responseDto;
     }
 
     /**
-     * Deletes billingdetails by ID.
+     * Partially updates existing billingdetails, writing only the given columns
+     * with a single {@code UPDATE} statement.
+     *
+     * @param id The ID of the billingdetails to patch.
+     * @param changes The new values keyed by field name.
+     * @param expectedVersion The version from {@code If-Match}, or
+     * {@code null} to patch unconditionally.
+     * @return A message indicating the result of the patch.
+     * @throws EntityNotFoundException If no billingdetails with the specified
+     * ID is found.
+     * @throws PreconditionFailedException If the billingdetails is no longer at the
+     * expected version.
+     */
+    @Transactional
+    @Override
+    public String patchBillingdetails(String id, Map<String, Object> changes, Long expectedVersion) {
+        log.info("Entering patchBillingdetails method for ID: {}", id);
+
+        Map<String, Object> values = patientDetailsUtil.toPatchValues(changes, Billingdetails.class);
+        if (billingdetailsDao.patchBillingdetails(id, values, expectedVersion) == 0) {
+            checkVersion(id, expectedVersion);
+            log.warn("No billingdetails found for patch with ID: {}", id);
+            throw new EntityNotFoundException("Data not found for patch with ID: " + id);
+        }
+        if (values.containsKey("patientid") || values.containsKey("paymentstatus")) {
+            TransactionUtil.afterCommit(billingStatusCounts::changed);
+        }
+        log.info("Exiting patchBillingdetails method for ID: {}", id);
+        return "Billingdetails patched successfully";
+    }
+
+    /**
+     * Deletes billingdetails by ID with a single {@code DELETE} statement.
      *
      * @param id The ID of the billingdetails to delete.
+     * @param expectedVersion The version from {@code If-Match}, or
+     * {@code null} to delete unconditionally.
      * @return A message indicating the result of the deletion.
      * @throws EntityNotFoundException If no billingdetails with the specified
      * ID is found.
+     * @throws PreconditionFailedException If the billingdetails is no longer at the
+     * expected version.
      */
+    @Transactional
     @Override
-    public String deleteBillingdetails(String id) {
+    public String deleteBillingdetails(String id, Long expectedVersion) {
         log.info("Entering deleteBillingdetails method for ID: {}", id);
 
-        billingdetailsDao.getBillingdetailsById(id)
-                .orElseThrow(() -> {
-                    log.warn("No billingdetails found with ID: {}. Deletion failed.", id);
-                    return new EntityNotFoundException("No billingdetails found with ID: " + id + ". Unable to delete.");
-                });
-
-        billingdetailsDao.deleteBillingdetails(id);
+        if (billingdetailsDao.deleteBillingdetails(id, expectedVersion) == 0) {
+            checkVersion(id, expectedVersion);
+            log.warn("No billingdetails found with ID: {}. Deletion failed.", id);
+            throw new EntityNotFoundException("No billingdetails found with ID: " + id + ". Unable to delete.");
+        }
+        TransactionUtil.afterCommit(billingStatusCounts::changed);
         log.info("Successfully deleted Billingdetails with ID: {}", id);
 
         return "Billingdetails deleted successfully";
     }
 
+    /**
+     * Retrieves the version of billingdetails by its ID without loading the row, to
+     * answer conditional requests.
+     *
+     * @param id The ID of the billingdetails.
+     * @return The current version.
+     * @throws EntityNotFoundException If no billingdetails with the specified ID is
+     * found.
+     */
+    @Override
+    public long getBillingdetailsVersion(String id) {
+        log.info("Entering getBillingdetailsVersion method for ID: {}", id);
+        long version = billingdetailsDao.getBillingdetailsVersion(id)
+                .orElseThrow(() -> new EntityNotFoundException("Data not found for ID: " + id));
+        log.info("Exiting getBillingdetailsVersion method for ID: {}", id);
+        return version;
+    }
+
+    /**
+     * Tells a conditional write that matched no row because the version
+     * moved on apart from one whose row does not exist.
+     */
+    private void checkVersion(String id, Long expectedVersion) {
+        if (expectedVersion != null && billingdetailsDao.getBillingdetailsVersion(id).isPresent()) {
+            log.warn("Billingdetails with ID: {} is no longer at version {}", id, expectedVersion);
+            throw new PreconditionFailedException("Billingdetails with ID: " + id + " is no longer at version " + expectedVersion);
+        }
+    }
+
 }
@@ -0,0 +1,58 @@
+package com.geppetto.MediRecords.service.serviceimpl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+import com.geppetto.MediRecords.dto.CacheStatsDto;
+import com.geppetto.MediRecords.model.Appointment;
+import com.geppetto.MediRecords.model.Billingdetails;
+import com.geppetto.MediRecords.service.CacheService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of the {@link CacheService} interface. Reports the
+ * statistics of the read-through caches used by the DAOs.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CacheServiceImpl implements CacheService {
+
+    private final Cache<String, Appointment> appointmentCache;
+    private final Cache<String, Billingdetails> billingdetailsCache;
+
+    /**
+     * Retrieves the statistics of every cache.
+     *
+     * @return A map of cache name to {@link CacheStatsDto}.
+     */
+    @Override
+    public Map<String, CacheStatsDto> getCacheStats() {
+        log.info("Entering getCacheStats method");
+        Map<String, CacheStatsDto> stats = new LinkedHashMap<>();
+        stats.put("appointment", toDto(appointmentCache));
+        stats.put("billingdetails", toDto(billingdetailsCache));
+        log.info("Exiting getCacheStats method");
+        return stats;
+    }
+
+    private static CacheStatsDto toDto(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return CacheStatsDto.builder()
+                .estimatedSize(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .loadCount(stats.loadCount())
+                .averageLoadPenaltyMillis(stats.averageLoadPenalty() / 1_000_000.0)
+                .build();
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.geppetto.MediRecords.service.serviceimpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.geppetto.MediRecords.dao.AppointmentDao;
+import com.geppetto.MediRecords.dao.BillingdetailsDao;
+import com.geppetto.MediRecords.dto.AppointmentDto;
+import com.geppetto.MediRecords.dto.BillingdetailsDto;
+import com.geppetto.MediRecords.dto.PatientSummaryDto;
+import com.geppetto.MediRecords.service.PatientSummaryService;
+import com.geppetto.MediRecords.util.JdbcStatementCounter;
+import com.geppetto.MediRecords.util.PatientDetailsUtil;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Implementation of the {@link PatientSummaryService} interface. Combines a
+ * patient's appointments and billingdetails into one response.
+ */
+@Service
+@Slf4j
+public class PatientSummaryServiceImpl implements PatientSummaryService {
+
+    private final AppointmentDao appointmentDao;
+    private final BillingdetailsDao billingdetailsDao;
+    private final PatientDetailsUtil patientDetailsUtil;
+    private final ExecutorService patientSummaryExecutor;
+    private final Executor patientSummaryTasks;
+
+    /**
+     * Constructs a {@code PatientSummaryServiceImpl} with its own executor,
+     * so each lookup runs its query on its own pooled connection. With
+     * virtual threads enabled every lookup gets a fresh virtual thread and
+     * the database bulkhead does the bounding; otherwise a bounded platform
+     * thread pool is used.
+     */
+    public PatientSummaryServiceImpl(AppointmentDao appointmentDao, BillingdetailsDao billingdetailsDao,
+            PatientDetailsUtil patientDetailsUtil,
+            @Value("${medirecords.summary.pool-size:8}") int poolSize,
+            @Value("${medirecords.summary.queue-capacity:100}") int queueCapacity,
+            @Value("${medirecords.virtual-threads.enabled:false}") boolean virtualThreads) {
+        this.appointmentDao = appointmentDao;
+        this.billingdetailsDao = billingdetailsDao;
+        this.patientDetailsUtil = patientDetailsUtil;
+        if (virtualThreads) {
+            this.patientSummaryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(poolSize);
+            executor.setMaxPoolSize(poolSize);
+            executor.setQueueCapacity(queueCapacity);
+            executor.setThreadNamePrefix("patient-summary-");
+            executor.initialize();
+            this.patientSummaryExecutor = executor.getThreadPoolExecutor();
+        }
+        this.patientSummaryTasks = task -> patientSummaryExecutor.execute(JdbcStatementCounter.wrap(task));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        patientSummaryExecutor.shutdown();
+    }
+
+    /**
+     * Retrieves the appointments and billingdetails of a patient. The two
+     * equality queries on {@code patientid} run concurrently, so the call
+     * takes as long as the slower of the two.
+     *
+     * @param patientid The patient to summarise.
+     * @return The {@link PatientSummaryDto} with per-status billing counts.
+     */
+    @Override
+    public PatientSummaryDto getPatientSummary(int patientid) {
+        log.info("Entering getPatientSummary method for patientid: {}", patientid);
+
+        CompletableFuture<List<AppointmentDto>> appointments = CompletableFuture.supplyAsync(
+                () -> appointmentDao.getAppointmentByPatientid(patientid).stream()
+                        .map(patientDetailsUtil::toDto)
+                        .collect(Collectors.toList()),
+                patientSummaryTasks);
+        CompletableFuture<List<BillingdetailsDto>> billingdetails = CompletableFuture.supplyAsync(
+                () -> billingdetailsDao.getBillingdetailsByPatientid(patientid).stream()
+                        .map(patientDetailsUtil::toDto)
+                        .collect(Collectors.toList()),
+                patientSummaryTasks);
+
+        PatientSummaryDto summary;
+        try {
+            List<BillingdetailsDto> billingdetailsDtos = billingdetails.join();
+            Map<String, Long> statusCounts = billingdetailsDtos.stream()
+                    .collect(Collectors.groupingBy(BillingdetailsDto::getPaymentstatus, TreeMap::new, Collectors.counting()));
+            summary = PatientSummaryDto.builder()
+                    .patientid(patientid)
+                    .appointments(appointments.join())
+                    .billingdetails(billingdetailsDtos)
+                    .billingStatusCounts(statusCounts)
+                    .build();
+        } catch (CompletionException e) {
+            appointments.cancel(true);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        log.info("Exiting getPatientSummary method for patientid: {}. Appointments: {}, billingdetails: {}",
+                patientid, summary.getAppointments().size(), summary.getBillingdetails().size());
+        return summary;
+    }
+
+}
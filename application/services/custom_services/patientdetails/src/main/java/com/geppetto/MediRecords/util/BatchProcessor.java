@@ -0,0 +1,184 @@
+package com.geppetto.MediRecords.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.geppetto.MediRecords.dto.BatchItemResultDto;
+import com.geppetto.MediRecords.dto.BatchResultDto;
+import com.geppetto.MediRecords.exception.ConflictException;
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared driver for the bulk-create endpoints. Validates every item of a
+ * batch up front, then hands the valid items to a writer in chunks of
+ * {@code medirecords.batch.size} so that each chunk is flushed as one JDBC
+ * batch in its own transaction. A chunk the database refuses is split in
+ * halves until the refused items are isolated, so every item gets its own
+ * result.
+ */
+@Component
+@Slf4j
+public class BatchProcessor {
+
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxItems;
+
+    public BatchProcessor(Validator validator,
+            @Value("${medirecords.batch.size:50}") int batchSize,
+            @Value("${medirecords.batch.max-items:10000}") int maxItems) {
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Validates and writes a batch of DTOs.
+     *
+     * @param dtos The DTOs to create. Must not be {@code null}.
+     * @param idOf Extracts the ID of a DTO, used for duplicate detection and
+     * for the per-item result.
+     * @param chunkWriter Persists one chunk of valid DTOs inside a single
+     * transaction. A data error splits the chunk and marks the refused items
+     * {@link BatchItemResultDto.Status#REJECTED}; any other runtime exception
+     * marks every item of the (part of the) chunk
+     * {@link BatchItemResultDto.Status#FAILED}.
+     * @return The per-item outcome of the batch.
+     * @throws MethodArgumentNotValidException If the batch is empty or larger
+     * than {@code medirecords.batch.max-items}.
+     */
+    public <D> BatchResultDto process(List<D> dtos, Function<D, String> idOf, Consumer<List<D>> chunkWriter) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new MethodArgumentNotValidException("batch cannot be null or empty");
+        }
+        if (dtos.size() > maxItems) {
+            throw new MethodArgumentNotValidException("batch size " + dtos.size() + " exceeds the limit of " + maxItems);
+        }
+
+        BatchItemResultDto[] results = new BatchItemResultDto[dtos.size()];
+        List<Integer> validIndexes = new ArrayList<>(dtos.size());
+        Set<String> seenIds = new HashSet<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            D dto = dtos.get(i);
+            String message = validate(dto);
+            String id = dto == null ? null : idOf.apply(dto);
+            if (message == null && (id == null || id.isBlank())) {
+                message = "id cannot be null or empty";
+            } else if (message == null && !seenIds.add(id)) {
+                message = "duplicate id in batch: " + id;
+            }
+            if (message != null) {
+                results[i] = result(i, id, BatchItemResultDto.Status.REJECTED, message);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        for (int from = 0; from < validIndexes.size(); from += batchSize) {
+            write(dtos, validIndexes.subList(from, Math.min(from + batchSize, validIndexes.size())), idOf, chunkWriter,
+                    results);
+        }
+
+        BatchResultDto batchResult = BatchResultDto.builder()
+                .total(results.length)
+                .items(List.of(results))
+                .build();
+        for (BatchItemResultDto item : results) {
+            switch (item.getStatus()) {
+                case CREATED -> batchResult.setCreated(batchResult.getCreated() + 1);
+                case REJECTED -> batchResult.setRejected(batchResult.getRejected() + 1);
+                case FAILED -> batchResult.setFailed(batchResult.getFailed() + 1);
+            }
+        }
+        return batchResult;
+    }
+
+    /**
+     * Checks a DTO against its bean validation constraints.
+     *
+     * @param dto The DTO to check.
+     * @return The violation messages joined in sorted order, or {@code null}
+     * if the DTO is valid.
+     */
+    <D> String validate(D dto) {
+        if (dto == null) {
+            return "item cannot be null";
+        }
+        Set<ConstraintViolation<D>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private <D> void write(List<D> dtos, List<Integer> chunkIndexes, Function<D, String> idOf,
+            Consumer<List<D>> chunkWriter, BatchItemResultDto[] results) {
+        List<D> chunk = new ArrayList<>(chunkIndexes.size());
+        chunkIndexes.forEach(i -> chunk.add(dtos.get(i)));
+        BatchItemResultDto.Status status = BatchItemResultDto.Status.CREATED;
+        String message = null;
+        try {
+            chunkWriter.accept(chunk);
+        } catch (RuntimeException e) {
+            if (!DataErrorUtil.isDataError(e)) {
+                log.error("Batch chunk of {} items failed", chunk.size(), e);
+                status = BatchItemResultDto.Status.FAILED;
+                message = "the item could not be stored; retry later";
+            } else if (chunk.size() > 1) {
+                int half = chunkIndexes.size() / 2;
+                write(dtos, chunkIndexes.subList(0, half), idOf, chunkWriter, results);
+                write(dtos, chunkIndexes.subList(half, chunkIndexes.size()), idOf, chunkWriter, results);
+                return;
+            } else {
+                log.warn("Batch item {} refused by the database", idOf.apply(chunk.get(0)), e);
+                status = BatchItemResultDto.Status.REJECTED;
+                message = refusal(e);
+            }
+        }
+        for (int i : chunkIndexes) {
+            results[i] = result(i, idOf.apply(dtos.get(i)), status, message);
+        }
+    }
+
+    /**
+     * @return The message of a refusal raised by this service, which is meant
+     * for the client, or a generic one in place of the database's own text.
+     */
+    private static String refusal(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConflictException || cause instanceof MethodArgumentNotValidException) {
+                return cause.getMessage();
+            }
+        }
+        return "refused by the database, for example because the id is already taken";
+    }
+
+    private static BatchItemResultDto result(int index, String id, BatchItemResultDto.Status status, String message) {
+        return BatchItemResultDto.builder()
+                .index(index)
+                .id(id)
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.geppetto.MediRecords.util;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * How the total of a paged listing is computed, chosen with
+ * {@code medirecords.count.strategy} or per request with {@code count=}.
+ * Every strategy except {@link #EXACT} keeps listing latency independent of
+ * the table size.
+ */
+public enum CountStrategy {
+
+    /** {@code SELECT count(*)} on every request. */
+    EXACT("exact"),
+    /** An exact count, reused for {@code medirecords.count.cache-ttl} or until a row is inserted or deleted. */
+    CACHED("cached"),
+    /** The row count from the optimizer statistics; {@link #CACHED} if the table has none. */
+    ESTIMATED("estimated"),
+    /** No count: a slice that only tells whether a next page exists. */
+    NONE("none");
+
+    private final String token;
+
+    CountStrategy(String token) {
+        this.token = token;
+    }
+
+    @JsonValue
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Resolves a strategy token.
+     *
+     * @param token The value of a {@code count=} parameter.
+     * @return The strategy, or {@code null} if the token is not a strategy.
+     */
+    static CountStrategy fromToken(String token) {
+        for (CountStrategy strategy : values()) {
+            if (strategy.token.equals(token)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,474 @@
+package com.geppetto.MediRecords.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geppetto.MediRecords.dto.ImportJobDto;
+import com.geppetto.MediRecords.exception.EntityNotFoundException;
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+import com.geppetto.MediRecords.exception.ServiceUnavailableException;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs CSV uploads as background import jobs. The upload is spooled to a
+ * temporary file before the request returns, then each job reads it in
+ * chunks of {@code medirecords.import.chunk-size} records:
+ * <ol>
+ * <li>chunks are parsed, type-converted and validated against the DTO
+ * constraints in parallel on a shared pool of
+ * {@code medirecords.import.parser-threads};</li>
+ * <li>the job thread inserts the parsed chunks in file order, one
+ * transaction per chunk, while the next chunks are being parsed. At most
+ * {@code medirecords.import.max-in-flight} chunks are parsed ahead of the
+ * writer, so a slow database holds the reader back instead of filling the
+ * heap.</li>
+ * </ol>
+ * A row that cannot be parsed or fails validation goes to the job's reject
+ * report. A chunk the database refuses is split in halves and retried until
+ * the offending rows are isolated, so they are rejected too and the rest of
+ * the chunk is still imported. Any other failure, such as the database being
+ * down, fails the job at that chunk rather than rejecting its rows; the
+ * chunks before it stay imported. Finished jobs are kept for
+ * {@code medirecords.import.retention} and are lost on restart.
+ */
+@Component
+@Slf4j
+public class CsvImporter {
+
+    private static final List<String> REJECT_COLUMNS = List.of("line", "reason", "record");
+    private static final int BUSY_RETRIES = 10;
+    private static final long BUSY_BACKOFF_MILLIS = 100;
+
+    private final PatientDetailsUtil patientDetailsUtil;
+    private final BatchProcessor batchProcessor;
+    private final IdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final Duration retention;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ExecutorService parserExecutor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public CsvImporter(PatientDetailsUtil patientDetailsUtil, BatchProcessor batchProcessor, IdGenerator idGenerator,
+            ObjectMapper objectMapper,
+            @Value("${medirecords.import.chunk-size:1000}") int chunkSize,
+            @Value("${medirecords.import.max-in-flight:8}") int maxInFlight,
+            @Value("${medirecords.import.parser-threads:0}") int parserThreads,
+            @Value("${medirecords.import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+            @Value("${medirecords.import.queue-capacity:10}") int queueCapacity,
+            @Value("${medirecords.import.retention:24h}") Duration retention) {
+        this.patientDetailsUtil = patientDetailsUtil;
+        this.batchProcessor = batchProcessor;
+        this.idGenerator = idGenerator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+        this.retention = retention;
+
+        ThreadPoolTaskExecutor jobs = new ThreadPoolTaskExecutor();
+        jobs.setCorePoolSize(maxConcurrentJobs);
+        jobs.setMaxPoolSize(maxConcurrentJobs);
+        jobs.setQueueCapacity(queueCapacity);
+        jobs.setThreadNamePrefix("import-job-");
+        jobs.initialize();
+        this.jobExecutor = jobs.getThreadPoolExecutor();
+
+        int threads = parserThreads > 0 ? parserThreads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor parsers = new ThreadPoolTaskExecutor();
+        parsers.setCorePoolSize(threads);
+        parsers.setMaxPoolSize(threads);
+        parsers.setThreadNamePrefix("import-parser-");
+        parsers.initialize();
+        this.parserExecutor = parsers.getThreadPoolExecutor();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdownNow();
+        parserExecutor.shutdownNow();
+        jobs.values().forEach(Job::deleteFiles);
+    }
+
+    /**
+     * Spools a CSV upload and queues it for import. The first record must be
+     * a header naming the columns; every field of the entity except
+     * {@code id}, {@code version} and the optional columns is required, and
+     * a {@code version} column is ignored. Values are converted as for a
+     * PATCH, an empty value of an optional column is left unset, and a
+     * missing or empty {@code id} is generated.
+     *
+     * @param entity The name of the entity, used to scope job lookups.
+     * @param csv The uploaded file, UTF-8 encoded.
+     * @param dtoClass The DTO each row is converted to and validated as.
+     * @param entityClass The entity the columns are checked against.
+     * @param optionalColumns The fields that may be missing or empty.
+     * @param chunkWriter Inserts one chunk of valid DTOs in a single
+     * transaction.
+     * @return The queued job.
+     * @throws RejectedExecutionException If too many imports are already
+     * queued.
+     */
+    public <D> ImportJobDto submit(String entity, InputStream csv, Class<D> dtoClass, Class<?> entityClass,
+            Set<String> optionalColumns, Consumer<List<D>> chunkWriter) {
+        purgeExpired();
+        if (jobExecutor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("import queue is full");
+        }
+        Job job = new Job(UUID.randomUUID().toString(), entity);
+        try {
+            job.upload = Files.createTempFile("import-" + job.id + "-", ".csv");
+            job.rejects = Files.createTempFile("import-" + job.id + "-rejects-", ".csv");
+            Files.copy(csv, job.upload, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            job.deleteFiles();
+            throw new UncheckedIOException(e);
+        }
+        jobs.put(job.id, job);
+        try {
+            jobExecutor.execute(() -> run(job, dtoClass, entityClass, optionalColumns, chunkWriter));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            job.deleteFiles();
+            throw e;
+        }
+        log.info("Queued {} import job {}", entity, job.id);
+        return job.toDto();
+    }
+
+    /**
+     * @param entity The name of the entity the job imports.
+     * @param jobId The ID returned by {@link #submit}.
+     * @return The current progress of the job.
+     * @throws EntityNotFoundException If there is no such job for the entity.
+     */
+    public ImportJobDto getJob(String entity, String jobId) {
+        return findJob(entity, jobId).toDto();
+    }
+
+    /**
+     * @param entity The name of the entity the job imports.
+     * @param jobId The ID returned by {@link #submit}.
+     * @return The reject report of a finished job as CSV with the columns
+     * {@code line}, {@code reason} and {@code record}.
+     * @throws EntityNotFoundException If there is no such job for the entity.
+     * @throws MethodArgumentNotValidException If the job has not finished.
+     */
+    public Resource getRejects(String entity, String jobId) {
+        Job job = findJob(entity, jobId);
+        if (job.finishedAt == null) {
+            throw new MethodArgumentNotValidException("import job " + jobId + " has not finished");
+        }
+        return new FileSystemResource(job.rejects);
+    }
+
+    private Job findJob(String entity, String jobId) {
+        purgeExpired();
+        Job job = jobs.get(jobId);
+        if (job == null || !job.entity.equals(entity)) {
+            throw new EntityNotFoundException("Import job not found with ID: " + jobId);
+        }
+        return job;
+    }
+
+    private <D> void run(Job job, Class<D> dtoClass, Class<?> entityClass, Set<String> optionalColumns,
+            Consumer<List<D>> chunkWriter) {
+        job.startedAt = Instant.now();
+        job.status = ImportJobDto.Status.RUNNING;
+        ExportWriter rejects = new ExportWriter(ExportFormat.CSV, REJECT_COLUMNS, () -> {
+            try {
+                return Files.newOutputStream(job.rejects);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, objectMapper);
+        Deque<CompletableFuture<ParsedChunk<D>>> inFlight = new ArrayDeque<>(maxInFlight);
+        try (BufferedReader reader = Files.newBufferedReader(job.upload, StandardCharsets.UTF_8)) {
+            rejects.writeHeader();
+            CsvRecordReader records = new CsvRecordReader(reader);
+            List<String> columns = readHeader(records.next(), entityClass, optionalColumns);
+            List<CsvRecordReader.CsvRecord> chunk;
+            while (!(chunk = records.next(chunkSize)).isEmpty()) {
+                job.rowsRead.addAndGet(chunk.size());
+                List<CsvRecordReader.CsvRecord> parseChunk = chunk;
+                inFlight.add(CompletableFuture.supplyAsync(
+                        () -> parse(parseChunk, columns, optionalColumns, dtoClass, entityClass), parserExecutor));
+                if (inFlight.size() >= maxInFlight) {
+                    write(job, inFlight.poll().join(), chunkWriter, rejects);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(job, inFlight.poll().join(), chunkWriter, rejects);
+            }
+            job.finish(ImportJobDto.Status.COMPLETED, null);
+            log.info("Finished {} import job {}. Imported: {}, rejected: {}", job.entity, job.id,
+                    job.rowsImported.get(), job.rowsRejected.get());
+        } catch (MethodArgumentNotValidException e) {
+            job.finish(ImportJobDto.Status.FAILED, e.getMessage());
+            log.warn("{} import job {} failed: {}", job.entity, job.id, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            job.finish(ImportJobDto.Status.FAILED, cause.getMessage());
+            log.error("{} import job {} failed", job.entity, job.id, cause);
+        } finally {
+            inFlight.forEach(future -> future.cancel(false));
+            try {
+                rejects.finish();
+            } catch (UncheckedIOException e) {
+                log.error("Closing the reject report of import job {} failed", job.id, e);
+            }
+            try {
+                Files.deleteIfExists(job.upload);
+            } catch (IOException e) {
+                log.warn("Deleting the upload of import job {} failed", job.id, e);
+            }
+        }
+    }
+
+    private List<String> readHeader(CsvRecordReader.CsvRecord header, Class<?> entityClass, Set<String> optionalColumns) {
+        if (header == null || header.values() == null) {
+            throw new MethodArgumentNotValidException("the upload has no header row");
+        }
+        List<String> fields = patientDetailsUtil.fieldNames(entityClass);
+        List<String> columns = new ArrayList<>(header.values().size());
+        for (String value : header.values()) {
+            String column = value.strip();
+            if (columns.isEmpty() && column.startsWith("\uFEFF")) {
+                column = column.substring(1);
+            }
+            if (!fields.contains(column)) {
+                throw new MethodArgumentNotValidException("unknown column: " + column);
+            }
+            if (columns.contains(column)) {
+                throw new MethodArgumentNotValidException("duplicate column: " + column);
+            }
+            columns.add(column);
+        }
+        for (String field : fields) {
+            if (!"id".equals(field) && !"version".equals(field) && !optionalColumns.contains(field)
+                    && !columns.contains(field)) {
+                throw new MethodArgumentNotValidException("missing column: " + field);
+            }
+        }
+        return columns;
+    }
+
+    private <D> ParsedChunk<D> parse(List<CsvRecordReader.CsvRecord> records, List<String> columns,
+            Set<String> optionalColumns, Class<D> dtoClass, Class<?> entityClass) {
+        List<ParsedRow<D>> rows = new ArrayList<>(records.size());
+        List<Object[]> rejected = new ArrayList<>();
+        for (CsvRecordReader.CsvRecord record : records) {
+            try {
+                rows.add(new ParsedRow<>(record, toDto(record, columns, optionalColumns, dtoClass, entityClass)));
+            } catch (MethodArgumentNotValidException | IllegalArgumentException e) {
+                rejected.add(reject(record, e.getMessage()));
+            }
+        }
+        return new ParsedChunk<>(rows, rejected);
+    }
+
+    private <D> D toDto(CsvRecordReader.CsvRecord record, List<String> columns, Set<String> optionalColumns,
+            Class<D> dtoClass, Class<?> entityClass) {
+        if (record.values() == null) {
+            throw new MethodArgumentNotValidException("unterminated quoted value");
+        }
+        if (record.values().size() != columns.size()) {
+            throw new MethodArgumentNotValidException(
+                    "expected " + columns.size() + " values but found " + record.values().size());
+        }
+        String id = null;
+        Map<String, Object> values = new LinkedHashMap<>(columns.size() * 4 / 3 + 1);
+        for (int i = 0; i < columns.size(); i++) {
+            if ("id".equals(columns.get(i))) {
+                id = record.values().get(i).strip();
+            } else if (!"version".equals(columns.get(i))
+                    && !(optionalColumns.contains(columns.get(i)) && record.values().get(i).isBlank())) {
+                values.put(columns.get(i), record.values().get(i));
+            }
+        }
+        Map<String, Object> converted = patientDetailsUtil.toPatchValues(values, entityClass);
+        converted.put("id", idGenerator.assignId(id));
+        D dto = objectMapper.convertValue(converted, dtoClass);
+        String message = batchProcessor.validate(dto);
+        if (message != null) {
+            throw new MethodArgumentNotValidException(message);
+        }
+        return dto;
+    }
+
+    private <D> void write(Job job, ParsedChunk<D> chunk, Consumer<List<D>> chunkWriter, ExportWriter rejects) {
+        chunk.rejected().forEach(rejects::writeRow);
+        job.rowsRejected.addAndGet(chunk.rejected().size());
+        insert(job, chunk.rows(), chunkWriter, rejects);
+    }
+
+    private <D> void insert(Job job, List<ParsedRow<D>> rows, Consumer<List<D>> chunkWriter, ExportWriter rejects) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<D> dtos = new ArrayList<>(rows.size());
+        rows.forEach(row -> dtos.add(row.dto()));
+        try {
+            insertWhenAvailable(dtos, chunkWriter);
+            job.rowsImported.addAndGet(rows.size());
+        } catch (RuntimeException e) {
+            if (!DataErrorUtil.isDataError(e)) {
+                throw e;
+            }
+            if (rows.size() == 1) {
+                rejects.writeRow(reject(rows.get(0).record(), NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+                job.rowsRejected.incrementAndGet();
+                return;
+            }
+            int half = rows.size() / 2;
+            insert(job, rows.subList(0, half), chunkWriter, rejects);
+            insert(job, rows.subList(half, rows.size()), chunkWriter, rejects);
+        }
+    }
+
+    /**
+     * Retries a chunk the database bulkhead turned away, backing off a
+     * little longer each time, so an import yields to request traffic
+     * instead of rejecting rows.
+     */
+    private <D> void insertWhenAvailable(List<D> dtos, Consumer<List<D>> chunkWriter) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                chunkWriter.accept(dtos);
+                return;
+            } catch (ServiceUnavailableException e) {
+                if (attempt == BUSY_RETRIES) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(BUSY_BACKOFF_MILLIS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static Object[] reject(CsvRecordReader.CsvRecord record, String reason) {
+        return new Object[] { record.line(), reason, record.raw() };
+    }
+
+    private void purgeExpired() {
+        Instant expiry = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (job.finishedAt == null || job.finishedAt.isAfter(expiry)) {
+                return false;
+            }
+            job.deleteFiles();
+            return true;
+        });
+    }
+
+    private record ParsedRow<D>(CsvRecordReader.CsvRecord record, D dto) {
+    }
+
+    private record ParsedChunk<D>(List<ParsedRow<D>> rows, List<Object[]> rejected) {
+    }
+
+    private static final class Job {
+
+        private final String id;
+        private final String entity;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private volatile ImportJobDto.Status status = ImportJobDto.Status.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String message;
+        private Path upload;
+        private Path rejects;
+
+        private Job(String id, String entity) {
+            this.id = id;
+            this.entity = entity;
+        }
+
+        private void finish(ImportJobDto.Status status, String message) {
+            this.message = message;
+            this.finishedAt = Instant.now();
+            this.status = status;
+        }
+
+        private void deleteFiles() {
+            for (Path file : new Path[] { upload, rejects }) {
+                try {
+                    if (file != null) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    log.warn("Deleting {} failed", file, e);
+                }
+            }
+        }
+
+        private ImportJobDto toDto() {
+            long imported = rowsImported.get();
+            long rejected = rowsRejected.get();
+            double rowsPerSecond = 0;
+            if (startedAt != null) {
+                Instant end = finishedAt != null ? finishedAt : Instant.now();
+                long millis = Duration.between(startedAt, end).toMillis();
+                if (millis > 0) {
+                    rowsPerSecond = Math.round((imported + rejected) * 10_000.0 / millis) / 10.0;
+                }
+            }
+            return ImportJobDto.builder()
+                    .id(id)
+                    .entity(entity)
+                    .status(status)
+                    .rowsRead(rowsRead.get())
+                    .rowsImported(imported)
+                    .rowsRejected(rejected)
+                    .rowsPerSecond(rowsPerSecond)
+                    .submittedAt(submittedAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .message(message)
+                    .build();
+        }
+
+    }
+
+}
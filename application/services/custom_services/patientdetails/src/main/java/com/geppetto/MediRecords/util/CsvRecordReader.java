@@ -0,0 +1,108 @@
+package com.geppetto.MediRecords.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 records: comma-separated values, optionally in double
+ * quotes, where a quoted value may contain commas, doubled quotes and line
+ * breaks. Blank lines are skipped.
+ */
+final class CsvRecordReader {
+
+    /**
+     * One record of the file.
+     *
+     * @param line The line the record starts on, counting from 1.
+     * @param raw The record as it appears in the file.
+     * @param values The values, or {@code null} if a quoted value is not
+     * closed before the end of the file.
+     */
+    record CsvRecord(long line, String raw, List<String> values) {
+    }
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    CsvRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return The next record, or {@code null} at the end of the file.
+     */
+    CsvRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isEmpty());
+
+        long firstLine = lineNumber;
+        StringBuilder raw = new StringBuilder(line);
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    values.add(value.toString());
+                    return new CsvRecord(firstLine, raw.toString(), values);
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    return new CsvRecord(firstLine, raw.toString(), null);
+                }
+                lineNumber++;
+                raw.append('\n').append(line);
+                value.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+                fieldStart = true;
+                continue;
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+            } else {
+                value.append(c);
+            }
+            fieldStart = false;
+        }
+    }
+
+    /**
+     * Reads up to {@code count} records.
+     *
+     * @param count The maximum number of records to read.
+     * @return The records; empty at the end of the file.
+     */
+    List<CsvRecord> next(int count) throws IOException {
+        List<CsvRecord> records = new ArrayList<>(count);
+        CsvRecord record;
+        while (records.size() < count && (record = next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.geppetto.MediRecords.util;
+
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import org.hibernate.NonUniqueObjectException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.geppetto.MediRecords.exception.ConflictException;
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+
+import jakarta.persistence.EntityExistsException;
+
+/**
+ * Tells failures caused by the rows being written apart from failures of the
+ * database itself. Bulk writers split a chunk to isolate the rows behind the
+ * former, and give up or retry the whole chunk on the latter.
+ */
+public final class DataErrorUtil {
+
+    private DataErrorUtil() {
+    }
+
+    /**
+     * Checks the exception and its causes. The DAOs are not repositories, so
+     * their exceptions are not translated and may arrive as Hibernate or JDBC
+     * exceptions as well as Spring ones.
+     *
+     * @param e The failure of a write.
+     * @return Whether the data was refused, so writing the same rows again
+     * cannot succeed.
+     */
+    public static boolean isDataError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof ConstraintViolationException
+                    || cause instanceof DataException || cause instanceof SQLIntegrityConstraintViolationException
+                    || cause instanceof SQLDataException || cause instanceof EntityExistsException
+                    || cause instanceof NonUniqueObjectException || cause instanceof ConflictException
+                    || cause instanceof MethodArgumentNotValidException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
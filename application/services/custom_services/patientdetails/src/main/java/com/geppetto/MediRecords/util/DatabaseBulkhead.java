@@ -0,0 +1,133 @@
+package com.geppetto.MediRecords.util;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.geppetto.MediRecords.exception.ServiceUnavailableException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits how many callers may use the database at once. Permits default to
+ * the size of the Hikari pool and are handed out in arrival order, so a
+ * caller holding a permit finds a connection without waiting on the pool.
+ * Callers beyond the permits wait in a bounded queue for at most
+ * {@code medirecords.bulkhead.max-wait}; anything beyond that is rejected
+ * straight away with a {@link ServiceUnavailableException} rather than
+ * waiting out the pool's {@code connection-timeout}.
+ *
+ * <p>With virtual threads enabled this is also what bounds the number of
+ * threads that can be inside the JDBC driver at the same time.</p>
+ */
+@Component
+@Slf4j
+public class DatabaseBulkhead {
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final int maxQueueDepth;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    public DatabaseBulkhead(@Value("${medirecords.bulkhead.enabled:true}") boolean enabled,
+            @Value("${medirecords.bulkhead.max-concurrent:${spring.datasource.hikari.maximum-pool-size:30}}") int maxConcurrent,
+            @Value("${medirecords.bulkhead.max-queue-depth:200}") int maxQueueDepth,
+            @Value("${medirecords.bulkhead.max-wait:2s}") Duration maxWait) {
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Runs the action while holding a permit. Nested calls on the same
+     * thread reuse the permit of the outermost call.
+     *
+     * @param action The database work to run.
+     * @return The result of the action.
+     * @throws ServiceUnavailableException If the queue is full, the wait
+     * time ran out or the thread was interrupted while waiting.
+     * @throws Throwable Whatever the action throws.
+     */
+    public <T> T call(Action<T> action) throws Throwable {
+        int[] nesting = depth.get();
+        if (!enabled || nesting[0] > 0) {
+            return action.run();
+        }
+        acquire();
+        nesting[0]++;
+        try {
+            return action.run();
+        } finally {
+            nesting[0]--;
+            permits.release();
+        }
+    }
+
+    /**
+     * Takes a permit, waiting in line behind the threads already queued. The
+     * untimed {@link Semaphore#tryAcquire()} is not used for the fast path
+     * because it ignores fairness and would take a freed permit from them.
+     */
+    private void acquire() {
+        try {
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            if (waiting.incrementAndGet() > maxQueueDepth) {
+                waiting.decrementAndGet();
+                throw reject("queue is full");
+            }
+            try {
+                if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                    throw reject("no permit within the wait time");
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted while waiting");
+        }
+    }
+
+    private ServiceUnavailableException reject(String reason) {
+        rejected.incrementAndGet();
+        log.warn("Database bulkhead rejected a call: {}", reason);
+        return new ServiceUnavailableException("The service is overloaded, please retry later");
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public int getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Database work guarded by the bulkhead.
+     */
+    @FunctionalInterface
+    public interface Action<T> {
+        T run() throws Throwable;
+    }
+
+}
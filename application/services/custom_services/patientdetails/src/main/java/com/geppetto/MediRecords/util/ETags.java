@@ -0,0 +1,76 @@
+package com.geppetto.MediRecords.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.util.DigestUtils;
+
+import com.geppetto.MediRecords.dto.CountedPage;
+import com.geppetto.MediRecords.exception.PreconditionFailedException;
+
+/**
+ * Entity tags derived from the version column. A row's tag is its version,
+ * so it can be checked without loading the row; a page's tag is a digest of
+ * the IDs and versions on it plus its paging metadata.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @param version The version of a row.
+     * @return The strong entity tag of the row, quoted.
+     */
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Builds the strong entity tag of a page. It changes whenever a row on
+     * the page is added, removed or updated, or the reported total changes.
+     *
+     * @param slice The page.
+     * @param idOf Extracts the ID of a row.
+     * @param versionOf Extracts the version of a row.
+     * @return The entity tag, quoted.
+     */
+    public static <T> String of(Slice<T> slice, Function<T, String> idOf, Function<T, Long> versionOf) {
+        StringBuilder key = new StringBuilder(slice.getNumberOfElements() * 40 + 32);
+        key.append(slice.getNumber()).append('/').append(slice.getSize()).append('/').append(slice.hasNext());
+        if (slice instanceof CountedPage<T> page) {
+            key.append('/').append(page.getTotalElements()).append('/').append(page.getCountStrategy().getToken());
+        }
+        for (T row : slice) {
+            key.append('\n').append(idOf.apply(row)).append(':').append(versionOf.apply(row));
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Reads the version a conditional write expects from its
+     * {@code If-Match} header.
+     *
+     * @param ifMatch The header value; {@code null} or {@code *} for an
+     * unconditional write.
+     * @return The expected version, or {@code null} for an unconditional write.
+     * @throws PreconditionFailedException If the header is not a single
+     * strong tag of a version, which no row can match.
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.strip())) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                throw new PreconditionFailedException("If-Match does not match the current version", e);
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not match the current version");
+    }
+
+}
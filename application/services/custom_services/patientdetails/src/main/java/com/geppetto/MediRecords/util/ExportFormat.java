@@ -0,0 +1,52 @@
+package com.geppetto.MediRecords.util;
+
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+
+/**
+ * Output formats of the {@code /export} endpoints, chosen with
+ * {@code format=}.
+ */
+public enum ExportFormat {
+
+    /** RFC 4180 CSV with a header row. */
+    CSV("csv", "text/csv"),
+    /** One JSON object per line. */
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String token;
+    private final String contentType;
+
+    ExportFormat(String token, String contentType) {
+        this.token = token;
+        this.contentType = contentType;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Resolves a format token.
+     *
+     * @param token The value of a {@code format=} parameter; {@code null} or
+     * empty for {@link #CSV}.
+     * @return The format.
+     * @throws MethodArgumentNotValidException If the format is unknown.
+     */
+    public static ExportFormat fromToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return CSV;
+        }
+        for (ExportFormat format : values()) {
+            if (format.token.equals(token)) {
+                return format;
+            }
+        }
+        throw new MethodArgumentNotValidException("unknown export format: " + token);
+    }
+
+}
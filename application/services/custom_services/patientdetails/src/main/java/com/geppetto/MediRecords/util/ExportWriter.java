@@ -0,0 +1,145 @@
+package com.geppetto.MediRecords.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes export rows as CSV or NDJSON. The output is opened only when the
+ * header is written, so a request that fails before its first row can still
+ * be answered with an error response.
+ */
+public final class ExportWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExportFormat format;
+    private final List<String> columns;
+    private final Supplier<OutputStream> output;
+    private final ObjectMapper objectMapper;
+    private OutputStream outputStream;
+    private Writer csv;
+    private JsonGenerator json;
+    private long rows;
+
+    /**
+     * @param format The output format.
+     * @param columns The column names, in output order.
+     * @param output Opens the output; called once, by {@link #writeHeader()}.
+     * @param objectMapper The mapper whose settings NDJSON values are written with.
+     */
+    public ExportWriter(ExportFormat format, List<String> columns, Supplier<OutputStream> output,
+            ObjectMapper objectMapper) {
+        this.format = format;
+        this.columns = columns;
+        this.output = output;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Opens the output and, for CSV, writes the header row.
+     */
+    public void writeHeader() {
+        outputStream = output.get();
+        try {
+            if (format == ExportFormat.CSV) {
+                csv = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+                writeCsvRow(columns.toArray());
+            } else {
+                json = objectMapper.getFactory().createGenerator(outputStream);
+                json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes one row.
+     *
+     * @param values The column values, in the order of the columns.
+     */
+    public void writeRow(Object[] values) {
+        try {
+            if (csv != null) {
+                writeCsvRow(values);
+            } else {
+                json.writeStartObject();
+                for (int i = 0; i < values.length; i++) {
+                    json.writeFieldName(columns.get(i));
+                    json.writeObject(values[i]);
+                }
+                json.writeEndObject();
+            }
+            rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the buffered rows and closes the output, which finishes a
+     * compressed stream. Does nothing if the output was never opened.
+     */
+    public void finish() {
+        if (outputStream == null) {
+            return;
+        }
+        try {
+            if (csv != null) {
+                csv.close();
+            } else {
+                if (rows > 0) {
+                    json.writeRaw('\n');
+                }
+                json.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.write(',');
+            }
+            if (values[i] != null) {
+                writeCsvValue(values[i].toString());
+            }
+        }
+        csv.write("\r\n");
+    }
+
+    private void writeCsvValue(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            csv.write(value);
+            return;
+        }
+        csv.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.write('"');
+            }
+            csv.write(c);
+        }
+        csv.write('"');
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.geppetto.MediRecords.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+
+/**
+ * Server-side generator for time-ordered, monotonic IDs in the ULID format:
+ * a 48-bit millisecond timestamp followed by 80 random bits, encoded as 26
+ * Crockford base32 characters. IDs sort lexicographically in creation order,
+ * so inserts land on the right-hand edge of the primary-key index.
+ *
+ * <p>Within the same millisecond (or if the clock steps back) the previous
+ * value is incremented instead of re-randomised, which keeps IDs strictly
+ * increasing across all threads. The state is advanced with a single CAS, so
+ * the generator never blocks.
+ */
+@Component
+public class IdGenerator {
+
+    private static final char[] ENCODING = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 26;
+
+    private final boolean enabled;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(0L, 0L));
+
+    public IdGenerator(@Value("${medirecords.id.generator.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the client-supplied ID, or a newly generated one if the client
+     * did not supply an ID and generation is enabled.
+     *
+     * @param clientId The ID sent by the client; may be {@code null} or blank.
+     * @return The ID to store.
+     * @throws MethodArgumentNotValidException If no ID was supplied and
+     * generation is disabled.
+     */
+    public String assignId(String clientId) {
+        if (clientId != null && !clientId.isBlank()) {
+            return clientId;
+        }
+        if (!enabled) {
+            throw new MethodArgumentNotValidException("id cannot be null or empty");
+        }
+        return nextId();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Generates the next ID.
+     *
+     * @return A 26-character ULID greater than any previously returned.
+     */
+    public String nextId() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            State previous = state.get();
+            State next;
+            if (now > previous.hi >>> 16) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                next = new State((now << 16) | (random.nextInt() & 0xFFFF), random.nextLong());
+            } else {
+                long lo = previous.lo + 1;
+                next = new State(lo == 0 ? previous.hi + 1 : previous.hi, lo);
+            }
+            if (state.compareAndSet(previous, next)) {
+                return encode(next.hi, next.lo);
+            }
+        }
+    }
+
+    static String encode(long hi, long lo) {
+        char[] chars = new char[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            chars[i] = ENCODING[fiveBits(hi, lo, (LENGTH - 1 - i) * 5)];
+        }
+        return new String(chars);
+    }
+
+    private static int fiveBits(long hi, long lo, int shift) {
+        if (shift >= 64) {
+            return (int) (hi >>> (shift - 64)) & 31;
+        }
+        if (shift <= 59) {
+            return (int) (lo >>> shift) & 31;
+        }
+        return (int) ((lo >>> shift) | (hi << (64 - shift))) & 31;
+    }
+
+    private record State(long hi, long lo) {
+    }
+
+}
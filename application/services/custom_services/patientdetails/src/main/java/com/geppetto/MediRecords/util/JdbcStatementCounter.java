@@ -0,0 +1,74 @@
+package com.geppetto.MediRecords.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares on behalf of the current
+ * request, as reported by {@link SqlStatementInspector}. A counter is bound to the request thread by
+ * {@link com.geppetto.MediRecords.config.JdbcStatementMetricsFilter} and
+ * carried over to executor threads with {@link #wrap(Runnable)}; statements
+ * prepared on threads without a counter, such as startup loaders, are not
+ * counted.
+ */
+public final class JdbcStatementCounter {
+
+    /**
+     * Request attribute holding the counter of the request.
+     */
+    public static final String REQUEST_ATTRIBUTE = JdbcStatementCounter.class.getName() + ".COUNTER";
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    private JdbcStatementCounter() {
+    }
+
+    /**
+     * Counts one statement against the counter bound to the calling thread,
+     * if any.
+     */
+    public static void increment() {
+        AtomicInteger counter = CURRENT.get();
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+    }
+
+    /**
+     * Binds a counter to the calling thread.
+     *
+     * @param counter The counter to increment. {@code null} unbinds.
+     * @return The counter that was bound before, or {@code null}.
+     */
+    public static AtomicInteger bind(AtomicInteger counter) {
+        AtomicInteger previous = CURRENT.get();
+        if (counter == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(counter);
+        }
+        return previous;
+    }
+
+    /**
+     * Wraps a task so that it counts into the counter of the thread that
+     * submits it.
+     *
+     * @param task The task to wrap.
+     * @return The wrapped task, or {@code task} itself if no counter is bound.
+     */
+    public static Runnable wrap(Runnable task) {
+        AtomicInteger counter = CURRENT.get();
+        if (counter == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = bind(counter);
+            try {
+                task.run();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+}
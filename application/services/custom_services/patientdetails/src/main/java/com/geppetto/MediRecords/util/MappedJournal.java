@@ -0,0 +1,317 @@
+package com.geppetto.MediRecords.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of records in memory-mapped segment files, with a
+ * checkpoint of the last record that no longer needs to be kept.
+ * <p>
+ * Each record is written as its length, a CRC32, its sequence number, the
+ * time it was appended and its payload. The length is written last, so a
+ * record cut short by a crash reads as the end of its segment, and the CRC
+ * catches pages that reached the disk out of order. With {@code sync},
+ * {@link #force(long)} waits until a record is on the disk. Appends do not
+ * force, and concurrent callers of {@link #force(long)} share one: while a
+ * force runs, new records pile up, and the next force covers all of them.
+ * <p>
+ * Segments are named after their first sequence number and are deleted once
+ * the checkpoint has passed their last record. On open, the records after the
+ * checkpoint are read back and new records go to a fresh segment.
+ */
+@Slf4j
+public class MappedJournal implements Closeable {
+
+    /**
+     * A record read back from the journal.
+     */
+    public record Entry(long sequence, long timestamp, byte[] payload) {
+    }
+
+    private static final int HEADER_SIZE = 24;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long firstSequence;
+        private long lastSequence;
+        private MappedByteBuffer buffer;
+        private int forcedPosition;
+
+        private Segment(Path path, long firstSequence) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.lastSequence = firstSequence - 1;
+        }
+
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean sync;
+    private final FileChannel checkpointChannel;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final List<Entry> unflushed = new ArrayList<>();
+    private final Object forceLock = new Object();
+    private final Object checkpointLock = new Object();
+    private long nextSequence = 1;
+    private long checkpoint;
+    private boolean closed;
+    private long forcedSequence;
+    private boolean forcing;
+
+    /**
+     * Opens the journal in a directory, creating it if needed, and reads back
+     * the records after the checkpoint.
+     *
+     * @param directory The directory holding the segments and the checkpoint.
+     * @param segmentSize The size of each segment file in bytes.
+     * @param sync Whether {@link #force(long)} forces records to the disk.
+     * @throws IOException If the directory or a segment cannot be read.
+     */
+    public MappedJournal(Path directory, int segmentSize, boolean sync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer saved = ByteBuffer.allocate(Long.BYTES);
+        if (checkpointChannel.read(saved, 0) == Long.BYTES) {
+            checkpoint = saved.flip().getLong();
+            nextSequence = checkpoint + 1;
+        }
+        for (Path path : segmentPaths()) {
+            recover(path);
+        }
+        deleteFlushedSegments();
+        forcedSequence = nextSequence - 1;
+    }
+
+    /**
+     * @return The records that were appended after the checkpoint before the
+     * journal was last closed, in sequence order.
+     */
+    public List<Entry> getUnflushed() {
+        return Collections.unmodifiableList(unflushed);
+    }
+
+    /**
+     * Appends a record. It is not forced to the disk; call
+     * {@link #force(long)} with its sequence number for that.
+     *
+     * @param payload The bytes of the record.
+     * @return The record as written, with its sequence number and timestamp.
+     * @throws IOException If a new segment cannot be created, or the journal
+     * is closed.
+     * @throws IllegalArgumentException If the record does not fit in a segment.
+     */
+    public synchronized Entry append(byte[] payload) throws IOException {
+        if (closed) {
+            throw new IOException("journal " + directory + " is closed");
+        }
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("record of " + payload.length + " bytes does not fit in a journal segment");
+        }
+        Segment segment = segments.peekLast();
+        if (segment == null || segment.buffer == null || segment.buffer.remaining() < size) {
+            segment = startSegment();
+        }
+        Entry entry = new Entry(nextSequence++, System.currentTimeMillis(), payload);
+        MappedByteBuffer buffer = segment.buffer;
+        int position = buffer.position();
+        buffer.position(position + Integer.BYTES);
+        buffer.putInt((int) checksum(entry));
+        buffer.putLong(entry.sequence());
+        buffer.putLong(entry.timestamp());
+        buffer.put(payload);
+        buffer.putInt(position, payload.length);
+        segment.lastSequence = entry.sequence();
+        return entry;
+    }
+
+    /**
+     * Waits until every record up to a sequence number is on the disk. Only
+     * one force runs at a time, outside the lock that appends take. A caller
+     * that finds one running waits for it, and if it did not cover its record
+     * runs the next one, which covers every record appended in the meantime.
+     * Does nothing without {@code sync}.
+     *
+     * @param sequence The sequence number of the record to wait for.
+     * @throws IOException If the force failed or the thread was interrupted.
+     */
+    public void force(long sequence) throws IOException {
+        if (!sync) {
+            return;
+        }
+        synchronized (forceLock) {
+            while (forcing && forcedSequence < sequence) {
+                try {
+                    forceLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while forcing journal " + directory);
+                }
+            }
+            if (forcedSequence >= sequence) {
+                return;
+            }
+            forcing = true;
+        }
+        long target;
+        Segment segment;
+        MappedByteBuffer buffer;
+        int end;
+        synchronized (this) {
+            // earlier segments were forced when they were closed
+            target = nextSequence - 1;
+            segment = segments.peekLast();
+            buffer = segment == null ? null : segment.buffer;
+            end = buffer == null ? 0 : buffer.position();
+        }
+        boolean forced = false;
+        try {
+            if (buffer != null && end > segment.forcedPosition) {
+                buffer.force(segment.forcedPosition, end - segment.forcedPosition);
+                segment.forcedPosition = end;
+            }
+            forced = true;
+        } finally {
+            synchronized (forceLock) {
+                if (forced) {
+                    forcedSequence = Math.max(forcedSequence, target);
+                }
+                forcing = false;
+                forceLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Records that every record up to a sequence number has been applied, and
+     * deletes the segments holding only such records. The checkpoint file is
+     * written and forced without holding up appends.
+     *
+     * @param sequence The sequence number of the last applied record.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void checkpoint(long sequence) throws IOException {
+        synchronized (checkpointLock) {
+            if (sequence <= checkpoint) {
+                return;
+            }
+            checkpointChannel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence), 0);
+            if (sync) {
+                checkpointChannel.force(false);
+            }
+            synchronized (this) {
+                checkpoint = sequence;
+                deleteFlushedSegments();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        Segment segment = segments.peekLast();
+        if (segment != null && segment.buffer != null) {
+            segment.buffer.force();
+            segment.buffer = null;
+        }
+        checkpointChannel.close();
+    }
+
+    private List<Path> segmentPaths() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void recover(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        Segment segment = new Segment(path, Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int position = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - HEADER_SIZE + Integer.BYTES) {
+                break;
+            }
+            int crc = buffer.getInt();
+            Entry entry = new Entry(buffer.getLong(), buffer.getLong(), new byte[length]);
+            buffer.get(entry.payload());
+            if ((int) checksum(entry) != crc || entry.sequence() <= segment.lastSequence) {
+                log.warn("Journal segment {} ends with a damaged record at byte {}; ignoring the rest of it", path, position);
+                break;
+            }
+            segment.lastSequence = entry.sequence();
+            if (entry.sequence() > checkpoint) {
+                unflushed.add(entry);
+            }
+        }
+        nextSequence = Math.max(nextSequence, segment.lastSequence + 1);
+        if (segment.lastSequence < segment.firstSequence) {
+            Files.delete(path);
+            return;
+        }
+        segments.addLast(segment);
+    }
+
+    private Segment startSegment() throws IOException {
+        Segment current = segments.peekLast();
+        if (current != null && current.buffer != null) {
+            current.buffer.force();
+            current.buffer = null;
+        }
+        Segment segment = new Segment(directory.resolve(String.format("%020d%s", nextSequence, SEGMENT_SUFFIX)), nextSequence);
+        try (FileChannel channel = FileChannel.open(segment.path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void deleteFlushedSegments() throws IOException {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.peekFirst();
+            if (oldest.buffer != null || oldest.lastSequence > checkpoint) {
+                return;
+            }
+            Files.deleteIfExists(oldest.path);
+            segments.removeFirst();
+        }
+    }
+
+    private static long checksum(Entry entry) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(2 * Long.BYTES).putLong(entry.sequence()).putLong(entry.timestamp()).flip());
+        crc.update(entry.payload());
+        return crc.getValue();
+    }
+
+}
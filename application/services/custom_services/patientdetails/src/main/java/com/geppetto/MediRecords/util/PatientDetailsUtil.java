@@ -1,62 +1,250 @@
 package com.geppetto.MediRecords.util;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 
 import com.geppetto.MediRecords.dto.AppointmentDto;
 import com.geppetto.MediRecords.dto.BillingdetailsDto;
+import com.geppetto.MediRecords.dto.CountedPage;
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
 import com.geppetto.MediRecords.model.Appointment;
 import com.geppetto.MediRecords.model.Billingdetails;
 
-import jakarta.persistence.criteria.Predicate;
-
 @Component
 public class PatientDetailsUtil {
 
+    private static final String CURSOR_PREFIX = "id:";
+
+    private final SearchFieldRegistry searchFieldRegistry = new SearchFieldRegistry(Appointment.class, Billingdetails.class);
+
+    @Value("${medirecords.paging.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${medirecords.count.strategy:exact}")
+    private String defaultCountStrategy;
+
     /**
     * Constructs a JPA Specification query for dynamic search based on the
-    * given parameters.
+    * given parameters. Each value may carry a {@link SearchOperator} prefix
+    * such as {@code prefix:}, {@code in:} or {@code between:}; without one,
+    * text fields match by prefix and other fields by equality. Parameters
+    * that do not name a searchable field of the entity (such as
+    * {@code page}) are ignored.
     *
     * @param allParams A map containing query parameters (field name as key,
     * search value as value).
     * @return A JPA Specification that can be used to filter results
     * dynamically.
+    * @throws MethodArgumentNotValidException If a value cannot be converted
+    * to the field's type.
     */
     public <T> Specification<T> constructSearchQuery(Map<String, String> allParams, Class<T> entityClass) {
-        return (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-            allParams.forEach((key, value) -> {
-                if (value != null && !value.isEmpty()) {
-                    try {
-                        Class<?> fieldType = entityClass.getDeclaredField(key).getType();
-
-                        if (fieldType.equals(String.class)) {
-                            predicates.add(criteriaBuilder.like(root.get(key), "%" + value + "%"));
-                        } else if (fieldType.equals(Integer.class) || fieldType.equals(int.class)) {
-                            predicates.add(criteriaBuilder.equal(root.get(key), Integer.parseInt(value)));
-                        } else if (fieldType.equals(Long.class) || fieldType.equals(long.class)) {
-                            predicates.add(criteriaBuilder.equal(root.get(key), Long.parseLong(value)));
-                        } else if (fieldType.equals(Boolean.class) || fieldType.equals(boolean.class)) {
-                            predicates.add(criteriaBuilder.equal(root.get(key), Boolean.parseBoolean(value)));
-                        } else if (fieldType.equals(Double.class) || fieldType.equals(double.class)) {
-                            predicates.add(criteriaBuilder.equal(root.get(key), Double.parseDouble(value)));
-                        } else if (fieldType.equals(Float.class) || fieldType.equals(float.class)) {
-                            predicates.add(criteriaBuilder.equal(root.get(key), Float.parseFloat(value)));
-                        } else {
-                            predicates.add(criteriaBuilder.equal(root.get(key), value));
-                        }
-                    } catch (NoSuchFieldException e) {
-                        System.out.print("NoSuchFieldException:" + e);
-                    }
-                }
-            });
-
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+        SearchFieldRegistry.SearchField[] fields = searchFieldRegistry.searchFieldsOf(entityClass);
+        return (root, query, criteriaBuilder) -> SearchFieldRegistry.toPredicate(fields, allParams, root, criteriaBuilder);
+    }
+
+    /**
+    * Validates and converts a PATCH body into column values for a partial
+    * update. The ID and version cannot be patched, unknown fields are rejected, and
+    * values are coerced to the entity's field types.
+    *
+    * @param changes The requested changes (field name as key, new value as
+    * value).
+    * @param entityClass The entity the changes apply to.
+    * @return The converted values keyed by field name.
+    * @throws MethodArgumentNotValidException If the changes are empty or
+    * contain an unknown, read-only or invalid field.
+    */
+    public Map<String, Object> toPatchValues(Map<String, Object> changes, Class<?> entityClass) {
+        if (changes == null || changes.isEmpty()) {
+            throw new MethodArgumentNotValidException("patch cannot be null or empty");
+        }
+        Map<String, SearchFieldRegistry.SearchField> fields = searchFieldRegistry.fieldsOf(entityClass);
+        Map<String, Object> values = new LinkedHashMap<>();
+        changes.forEach((key, value) -> {
+            if ("id".equals(key) || "version".equals(key)) {
+                throw new MethodArgumentNotValidException(key + " cannot be patched");
+            }
+            SearchFieldRegistry.SearchField field = fields.get(key);
+            if (field == null) {
+                throw new MethodArgumentNotValidException("unknown field: " + key);
+            }
+            values.put(key, toPatchValue(key, value, field.type()));
+        });
+        return values;
+    }
+
+    /**
+    * Parses a {@code fields=} parameter into the list of columns to project.
+    * Duplicates are dropped and the requested order is kept, so the response
+    * lists the fields in the order the client asked for them.
+    *
+    * @param fields A comma-separated list of field names.
+    * @param entityClass The entity the fields belong to.
+    * @return The field names, in request order.
+    * @throws MethodArgumentNotValidException If the list is empty or names
+    * an unknown field.
+    */
+    public List<String> parseFields(String fields, Class<?> entityClass) {
+        if (fields == null || fields.isBlank()) {
+            throw new MethodArgumentNotValidException("fields cannot be null or empty");
+        }
+        Map<String, SearchFieldRegistry.SearchField> known = searchFieldRegistry.fieldsOf(entityClass);
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!known.containsKey(name)) {
+                throw new MethodArgumentNotValidException("unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return List.copyOf(selected);
+    }
+
+    /**
+    * Lists the persistent fields of an entity in declaration order.
+    *
+    * @param entityClass The entity class.
+    * @return The field names.
+    */
+    public List<String> fieldNames(Class<?> entityClass) {
+        return List.copyOf(searchFieldRegistry.fieldsOf(entityClass).keySet());
+    }
+
+    private Object toPatchValue(String key, Object value, Class<?> fieldType) {
+        if (value == null || value.toString().isBlank()) {
+            throw new MethodArgumentNotValidException(key + " cannot be null or empty");
+        }
+        try {
+            if (fieldType.equals(String.class)) {
+                return value.toString();
+            } else if (fieldType.equals(Integer.class) || fieldType.equals(int.class)) {
+                return Integer.parseInt(value.toString());
+            } else if (fieldType.equals(Long.class) || fieldType.equals(long.class)) {
+                return Long.parseLong(value.toString());
+            } else if (fieldType.equals(LocalDateTime.class)) {
+                return LocalDateTime.parse(value.toString());
+            }
+        } catch (NumberFormatException e) {
+            throw new MethodArgumentNotValidException(key + " must be a whole number", e);
+        } catch (DateTimeParseException e) {
+            throw new MethodArgumentNotValidException(key + " must be a date and time such as 2024-05-01T09:30", e);
+        }
+        throw new MethodArgumentNotValidException(key + " cannot be patched");
+    }
+
+    /**
+    * Builds the page request for keyset paging: always the first page of
+    * rows ordered by the primary key, capped at
+    * {@code medirecords.paging.max-size}.
+    *
+    * @param size The requested page size.
+    * @return A {@link Pageable} sorted by {@code id}.
+    */
+    public Pageable toKeysetPageable(int size) {
+        if (size < 1) {
+            throw new MethodArgumentNotValidException("size must be greater than 0");
+        }
+        return PageRequest.of(0, Math.min(size, maxPageSize), Sort.by("id"));
+    }
+
+    /**
+    * Encodes the last ID of a page as an opaque continuation token.
+    *
+    * @param lastId The ID of the last row returned.
+    * @return The URL-safe cursor.
+    */
+    public String encodeCursor(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+    * Decodes a continuation token produced by {@link #encodeCursor(String)}.
+    *
+    * @param cursor The cursor sent by the client; {@code null} or empty for
+    * the first page.
+    * @return The ID to continue after, or {@code null} for the first page.
+    * @throws MethodArgumentNotValidException If the cursor is malformed.
+    */
+    public String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX) && decoded.length() > CURSOR_PREFIX.length()) {
+                return decoded.substring(CURSOR_PREFIX.length());
+            }
+        } catch (IllegalArgumentException e) {
+            throw new MethodArgumentNotValidException("invalid cursor", e);
+        }
+        throw new MethodArgumentNotValidException("invalid cursor");
+    }
+
+    /**
+    * Resolves the {@code count=} parameter of a paged listing.
+    *
+    * @param count The requested strategy; {@code null} or empty for the
+    * configured {@code medirecords.count.strategy}.
+    * @return The count strategy to use.
+    * @throws MethodArgumentNotValidException If the strategy is unknown.
+    */
+    public CountStrategy parseCountStrategy(String count) {
+        String token = count == null || count.isEmpty() ? defaultCountStrategy : count;
+        CountStrategy strategy = CountStrategy.fromToken(token);
+        if (strategy == null) {
+            throw new MethodArgumentNotValidException("unknown count strategy: " + token);
+        }
+        return strategy;
+    }
+
+    /**
+    * Turns a slice into a page whose total comes from the given count
+    * strategy. No count is needed on the last page, whose total follows from
+    * its offset; such a page reports {@link CountStrategy#EXACT}. A
+    * total that lags behind the rows already seen is raised to match them.
+    *
+    * @param slice The fetched page content.
+    * @param strategy The count strategy; {@link CountStrategy#NONE} returns
+    * the slice unchanged.
+    * @param counter Counts the rows with a strategy; may return {@code null}
+    * for {@link CountStrategy#ESTIMATED} when no estimate is available, in
+    * which case {@link CountStrategy#CACHED} is used.
+    * @return The slice, or a {@link CountedPage} with its total.
+    */
+    public <T> Slice<T> toCountedPage(Slice<T> slice, CountStrategy strategy, Function<CountStrategy, Long> counter) {
+        if (strategy == CountStrategy.NONE) {
+            return slice;
+        }
+        Pageable pageable = slice.getPageable();
+        List<T> content = slice.getContent();
+        if (!slice.hasNext() && (!content.isEmpty() || pageable.getOffset() == 0)) {
+            return new CountedPage<>(content, pageable, pageable.getOffset() + content.size(), CountStrategy.EXACT);
+        }
+        Long total = counter.apply(strategy);
+        if (total == null) {
+            strategy = CountStrategy.CACHED;
+            total = counter.apply(strategy);
+        }
+        long seen = pageable.getOffset() + content.size() + (slice.hasNext() ? 1 : 0);
+        return new CountedPage<>(content, pageable, Math.max(total, seen), strategy);
     }
 
     public Appointment toEntity(AppointmentDto appointmentDto) {
@@ -65,6 +253,8 @@ public class PatientDetailsUtil {
                 .appointmentid(appointmentDto.getAppointmentid())
                 .patientid(appointmentDto.getPatientid())
                 .doctorname(appointmentDto.getDoctorname())
+                .starttime(appointmentDto.getStarttime())
+                .endtime(appointmentDto.getEndtime())
                 .build();
     }
 
@@ -74,6 +264,9 @@ public class PatientDetailsUtil {
                 .appointmentid(appointment.getAppointmentid())
                 .patientid(appointment.getPatientid())
                 .doctorname(appointment.getDoctorname())
+                .starttime(appointment.getStarttime())
+                .endtime(appointment.getEndtime())
+                .version(appointment.getVersion())
                 .build();
     }
 
@@ -92,6 +285,7 @@ public class PatientDetailsUtil {
                 .billingid(billingdetails.getBillingid())
                 .patientid(billingdetails.getPatientid())
                 .paymentstatus(billingdetails.getPaymentstatus())
+                .version(billingdetails.getVersion())
                 .build();
     }
 
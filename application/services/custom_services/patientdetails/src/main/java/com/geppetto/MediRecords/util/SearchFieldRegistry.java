@@ -0,0 +1,198 @@
+package com.geppetto.MediRecords.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+
+import jakarta.persistence.Transient;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Per-entity metadata for dynamic search, compiled once per entity class.
+ * Each persistent field gets a value parser chosen from its type and one
+ * predicate factory per {@link SearchOperator}, so building a query is a map
+ * lookup per field and an array lookup per parameter instead of a reflective
+ * field lookup and a chain of type and operator checks.
+ */
+final class SearchFieldRegistry {
+
+    /**
+     * Builds the predicate of one operator for one field. The operand is the
+     * part of the search value from {@code start} on, so it is not copied
+     * out of the value unless the operator needs it as a string of its own.
+     */
+    @FunctionalInterface
+    interface PredicateFactory {
+
+        Predicate create(CriteriaBuilder criteriaBuilder, Path<?> path, String value, int start);
+
+    }
+
+    /**
+     * A searchable field: its name, Java type, value parser and the
+     * predicate factories of every operator, indexed by ordinal.
+     */
+    static final class SearchField {
+
+        private final String name;
+        private final Class<?> type;
+        private final Function<String, ? extends Comparable<?>> parser;
+        private final PredicateFactory[] factories;
+        private final PredicateFactory defaultFactory;
+
+        private SearchField(String name, Class<?> type, Function<String, ? extends Comparable<?>> parser) {
+            this.name = name;
+            this.type = type;
+            this.parser = parser;
+            SearchOperator[] operators = SearchOperator.values();
+            this.factories = new PredicateFactory[operators.length];
+            for (SearchOperator operator : operators) {
+                factories[operator.ordinal()] = operator.compile(this);
+            }
+            this.defaultFactory = factories[(text() ? SearchOperator.PREFIX : SearchOperator.EQ).ordinal()];
+        }
+
+        String name() {
+            return name;
+        }
+
+        Class<?> type() {
+            return type;
+        }
+
+        boolean text() {
+            return type.equals(String.class);
+        }
+
+        Comparable<?> parse(String value) {
+            try {
+                return parser.apply(value);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new MethodArgumentNotValidException("invalid value for " + name + ": " + value, e);
+            }
+        }
+
+        /**
+         * Builds the predicate for one search parameter of the form
+         * {@code [operator:]operand} on this field of {@code root}.
+         */
+        Predicate toPredicate(CriteriaBuilder criteriaBuilder, Path<?> root, String value) {
+            int colon = value.indexOf(':');
+            if (colon > 0) {
+                SearchOperator operator = SearchOperator.fromToken(value, colon);
+                if (operator != null) {
+                    return factories[operator.ordinal()].create(criteriaBuilder, root.get(name), value, colon + 1);
+                }
+            }
+            return defaultFactory.create(criteriaBuilder, root.get(name), value, 0);
+        }
+
+    }
+
+    /**
+     * The compiled fields of one entity, by name and as an array for
+     * iterating without an iterator.
+     */
+    private record EntityFields(Map<String, SearchField> byName, SearchField[] all) {
+    }
+
+    private final Map<Class<?>, EntityFields> fieldsByEntity = new ConcurrentHashMap<>();
+
+    SearchFieldRegistry(Class<?>... entityClasses) {
+        for (Class<?> entityClass : entityClasses) {
+            entityFields(entityClass);
+        }
+    }
+
+    /**
+     * Returns the searchable fields of an entity, compiling them on first use
+     * if the entity was not registered up front.
+     *
+     * @param entityClass The entity class.
+     * @return The searchable fields keyed by name, in declaration order.
+     */
+    Map<String, SearchField> fieldsOf(Class<?> entityClass) {
+        return entityFields(entityClass).byName();
+    }
+
+    /**
+     * Returns the same fields as {@link #fieldsOf(Class)} as a shared array,
+     * which callers must not modify.
+     *
+     * @param entityClass The entity class.
+     * @return The searchable fields, in declaration order.
+     */
+    SearchField[] searchFieldsOf(Class<?> entityClass) {
+        return entityFields(entityClass).all();
+    }
+
+    /**
+     * Builds the conjunction of the predicates of every field that has a
+     * non-empty parameter. It walks the fields rather than the parameters,
+     * so other parameters (such as {@code page}) are never looked at, and it
+     * chains the predicates two at a time, which needs no array for the
+     * usual one or two of them.
+     *
+     * @param fields The searchable fields of the entity.
+     * @param params The search parameters (field name as key, search value
+     * as value).
+     * @param root The root of the query.
+     * @param criteriaBuilder The criteria builder of the query.
+     * @return The predicate, which matches everything if no field has a
+     * parameter.
+     */
+    static Predicate toPredicate(SearchField[] fields, Map<String, String> params, Path<?> root, CriteriaBuilder criteriaBuilder) {
+        Predicate predicate = null;
+        for (SearchField field : fields) {
+            String value = params.get(field.name());
+            if (value != null && !value.isEmpty()) {
+                Predicate next = field.toPredicate(criteriaBuilder, root, value);
+                predicate = predicate == null ? next : criteriaBuilder.and(predicate, next);
+            }
+        }
+        return predicate == null ? criteriaBuilder.conjunction() : predicate;
+    }
+
+    private EntityFields entityFields(Class<?> entityClass) {
+        return fieldsByEntity.computeIfAbsent(entityClass, SearchFieldRegistry::compile);
+    }
+
+    private static EntityFields compile(Class<?> entityClass) {
+        Map<String, SearchField> fields = new LinkedHashMap<>();
+        for (Field field : entityClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isAnnotationPresent(Transient.class)) {
+                continue;
+            }
+            fields.put(field.getName(), new SearchField(field.getName(), field.getType(), parserFor(field.getType())));
+        }
+        return new EntityFields(Collections.unmodifiableMap(fields), fields.values().toArray(new SearchField[0]));
+    }
+
+    private static Function<String, ? extends Comparable<?>> parserFor(Class<?> type) {
+        if (type.equals(Integer.class) || type.equals(int.class)) {
+            return Integer::valueOf;
+        } else if (type.equals(Long.class) || type.equals(long.class)) {
+            return Long::valueOf;
+        } else if (type.equals(Boolean.class) || type.equals(boolean.class)) {
+            return Boolean::valueOf;
+        } else if (type.equals(Double.class) || type.equals(double.class)) {
+            return Double::valueOf;
+        } else if (type.equals(Float.class) || type.equals(float.class)) {
+            return Float::valueOf;
+        } else if (type.equals(LocalDateTime.class)) {
+            return LocalDateTime::parse;
+        }
+        return Function.identity();
+    }
+
+}
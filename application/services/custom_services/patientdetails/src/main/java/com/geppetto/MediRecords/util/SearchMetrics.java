@@ -0,0 +1,50 @@
+package com.geppetto.MediRecords.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records how many rows each search returned, as the
+ * {@code medirecords.search.results} summary tagged with the entity and
+ * whether the results were listed, streamed or exported.
+ */
+@Component
+public class SearchMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public SearchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordResults(Class<?> entityClass, long count) {
+        summary(entityClass, "list").record(count);
+    }
+
+    public void recordStreamed(Class<?> entityClass, long count) {
+        summary(entityClass, "stream").record(count);
+    }
+
+    public void recordExported(Class<?> entityClass, long count) {
+        summary(entityClass, "export").record(count);
+    }
+
+    private DistributionSummary summary(Class<?> entityClass, String mode) {
+        return summaries.computeIfAbsent(entityClass.getSimpleName() + ':' + mode,
+                key -> DistributionSummary.builder("medirecords.search.results")
+                        .description("Rows returned per search")
+                        .tag("entity", entityClass.getSimpleName())
+                        .tag("mode", mode)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(1.0)
+                        .maximumExpectedValue(100_000.0)
+                        .register(meterRegistry));
+    }
+
+}
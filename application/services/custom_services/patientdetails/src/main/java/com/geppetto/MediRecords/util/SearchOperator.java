@@ -0,0 +1,179 @@
+package com.geppetto.MediRecords.util;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+
+import com.geppetto.MediRecords.exception.MethodArgumentNotValidException;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Operators accepted by the {@code /search} endpoints, written as
+ * {@code field=operator:operand}, e.g. {@code doctorname=prefix:Sm},
+ * {@code patientid=in:3,7,9} or {@code billingid=between:100,200}.
+ * A value without a known operator uses the field's default operator:
+ * {@link #PREFIX} for text columns and {@link #EQ} for everything else.
+ * Only {@link #CONTAINS} produces a leading wildcard, so every other
+ * operator can be answered from an index on the column. As it cannot use one
+ * anyway, {@link #CONTAINS} also ignores case, the same as the in-memory
+ * trigram index that answers it when enabled.
+ */
+public enum SearchOperator {
+
+    EQ("eq"),
+    PREFIX("prefix"),
+    CONTAINS("contains"),
+    IN("in"),
+    GT("gt"),
+    GTE("gte"),
+    LT("lt"),
+    LTE("lte"),
+    BETWEEN("between");
+
+    public static final int MAX_IN_VALUES = 1000;
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private static final SearchOperator[] OPERATORS = values();
+
+    private final String token;
+
+    SearchOperator(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Resolves the operator token at the start of a search value, without
+     * copying it out of the value.
+     *
+     * @param value The search value.
+     * @param length The length of the token, i.e. the index of the first
+     * {@code ':'}.
+     * @return The operator, or {@code null} if the token is not an operator.
+     */
+    static SearchOperator fromToken(String value, int length) {
+        for (SearchOperator operator : OPERATORS) {
+            if (operator.token.length() == length && value.startsWith(operator.token)) {
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the predicate factory of this operator for one field. The
+     * type checks are made here, once per field, rather than on every search.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    SearchFieldRegistry.PredicateFactory compile(SearchFieldRegistry.SearchField field) {
+        switch (this) {
+            case PREFIX:
+                if (!field.text()) {
+                    return unsupported(field);
+                }
+                return (criteriaBuilder, path, value, start) -> criteriaBuilder.like((Expression<String>) path, likePattern(value, start, false), LIKE_ESCAPE);
+            case CONTAINS:
+                if (!field.text()) {
+                    return unsupported(field);
+                }
+                return (criteriaBuilder, path, value, start) -> ilike(criteriaBuilder, (Expression<String>) path, likePattern(value, start, true));
+            case IN:
+                return (criteriaBuilder, path, value, start) -> {
+                    List<String> operands = split(operand(value, start));
+                    if (operands.size() > MAX_IN_VALUES) {
+                        throw new MethodArgumentNotValidException("in accepts at most " + MAX_IN_VALUES + " values for " + field.name());
+                    }
+                    CriteriaBuilder.In<Object> in = criteriaBuilder.in(path);
+                    operands.forEach(operand -> in.value(field.parse(operand)));
+                    return in;
+                };
+            case GT:
+                return (criteriaBuilder, path, value, start) -> criteriaBuilder.greaterThan((Expression<Comparable>) path, (Comparable) field.parse(operand(value, start)));
+            case GTE:
+                return (criteriaBuilder, path, value, start) -> criteriaBuilder.greaterThanOrEqualTo((Expression<Comparable>) path, (Comparable) field.parse(operand(value, start)));
+            case LT:
+                return (criteriaBuilder, path, value, start) -> criteriaBuilder.lessThan((Expression<Comparable>) path, (Comparable) field.parse(operand(value, start)));
+            case LTE:
+                return (criteriaBuilder, path, value, start) -> criteriaBuilder.lessThanOrEqualTo((Expression<Comparable>) path, (Comparable) field.parse(operand(value, start)));
+            case BETWEEN:
+                return (criteriaBuilder, path, value, start) -> {
+                    List<String> bounds = split(operand(value, start));
+                    if (bounds.size() != 2) {
+                        throw new MethodArgumentNotValidException("between needs exactly two values for " + field.name());
+                    }
+                    return criteriaBuilder.between((Expression<Comparable>) path, (Comparable) field.parse(bounds.get(0)),
+                            (Comparable) field.parse(bounds.get(1)));
+                };
+            case EQ:
+            default:
+                return (criteriaBuilder, path, value, start) -> criteriaBuilder.equal(path, field.parse(operand(value, start)));
+        }
+    }
+
+    private SearchFieldRegistry.PredicateFactory unsupported(SearchFieldRegistry.SearchField field) {
+        String message = token + " is not supported for " + field.name();
+        return (criteriaBuilder, path, value, start) -> {
+            throw new MethodArgumentNotValidException(message);
+        };
+    }
+
+    /**
+     * Hibernate renders {@code ilike} natively where the database has it and
+     * as {@code lower(..) like lower(..)} elsewhere, such as on Oracle.
+     */
+    private static Predicate ilike(CriteriaBuilder criteriaBuilder, Expression<String> path, String pattern) {
+        if (criteriaBuilder instanceof HibernateCriteriaBuilder hibernateCriteriaBuilder) {
+            return hibernateCriteriaBuilder.ilike(path, pattern, LIKE_ESCAPE);
+        }
+        return criteriaBuilder.like(criteriaBuilder.lower(path), pattern.toLowerCase(Locale.ROOT), LIKE_ESCAPE);
+    }
+
+    private static List<String> split(String operand) {
+        return List.of(operand.split(",", -1));
+    }
+
+    private static String operand(String value, int start) {
+        return start == 0 ? value : value.substring(start);
+    }
+
+    /**
+     * Builds the pattern straight from the search value, escaping the
+     * wildcards of the operand, so the operand is never copied out first.
+     */
+    private static String likePattern(String value, int start, boolean leadingWildcard) {
+        int escapes = 0;
+        for (int i = start; i < value.length(); i++) {
+            if (isLikeWildcard(value.charAt(i))) {
+                escapes++;
+            }
+        }
+        char[] pattern = new char[value.length() - start + escapes + (leadingWildcard ? 2 : 1)];
+        int at = 0;
+        if (leadingWildcard) {
+            pattern[at++] = '%';
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isLikeWildcard(c)) {
+                pattern[at++] = LIKE_ESCAPE;
+            }
+            pattern[at++] = c;
+        }
+        pattern[at] = '%';
+        return new String(pattern);
+    }
+
+    private static boolean isLikeWildcard(char c) {
+        return c == '%' || c == '_' || c == LIKE_ESCAPE;
+    }
+
+}
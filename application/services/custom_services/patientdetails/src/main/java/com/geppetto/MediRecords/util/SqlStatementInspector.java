@@ -0,0 +1,40 @@
+package com.geppetto.MediRecords.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sees every SQL statement Hibernate prepares. Counts it for the current
+ * request and logs it through the asynchronous appenders instead of
+ * Hibernate's {@code show-sql}, which prints synchronously to stdout:
+ * <ul>
+ * <li>at DEBUG, every statement is logged;</li>
+ * <li>otherwise one statement in {@code medirecords.sql-log.sample-rate} is
+ * logged at INFO, and none if the rate is 0.</li>
+ * </ul>
+ * With both off, a statement costs a level check and a thread-local lookup.
+ */
+@Slf4j
+public class SqlStatementInspector implements StatementInspector {
+
+    private final int sampleRate;
+
+    public SqlStatementInspector(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        JdbcStatementCounter.increment();
+        if (log.isDebugEnabled()) {
+            log.debug("SQL: {}", sql);
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+            log.info("Sampled SQL (1 in {}): {}", sampleRate, sql);
+        }
+        return sql;
+    }
+
+}
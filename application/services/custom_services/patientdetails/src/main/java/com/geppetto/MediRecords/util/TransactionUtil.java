@@ -0,0 +1,34 @@
+package com.geppetto.MediRecords.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for work that must only become visible once the surrounding
+ * transaction has committed, such as invalidating caches.
+ */
+public final class TransactionUtil {
+
+    private TransactionUtil() {
+    }
+
+    /**
+     * Runs the action after the current transaction commits, or immediately
+     * if no transaction is active.
+     *
+     * @param action The action to run. Must not be {@code null}.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
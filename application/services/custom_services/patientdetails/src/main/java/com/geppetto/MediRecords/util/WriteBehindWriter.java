@@ -0,0 +1,335 @@
+package com.geppetto.MediRecords.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.core.NestedExceptionUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.geppetto.MediRecords.exception.ConflictException;
+import com.geppetto.MediRecords.exception.ServiceUnavailableException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind for creates: accepted DTOs are appended to a
+ * {@link MappedJournal} and held in a pending buffer, and a background writer
+ * drains them to the database in chunks. Records stay in the journal until
+ * their chunk has committed, so the pending DTOs of a crashed instance are
+ * read back and written at its next start.
+ * <p>
+ * A chunk the database refuses is split in halves down to the refused DTO,
+ * which is logged, counted as rejected and dropped. Any other failure, such
+ * as the database being down, leaves the chunk in place to be retried on the
+ * next pass.
+ *
+ * @param <D> The DTO type.
+ */
+@Slf4j
+public class WriteBehindWriter<D> implements Closeable {
+
+    private record Pending<D>(long sequence, long timestamp, D dto) {
+    }
+
+    /**
+     * Thrown when a DTO was queued but forcing its journal record to the
+     * disk failed. The DTO is still written unless this instance stops
+     * first, so whatever the caller reserved for it must be kept.
+     */
+    public static class NotDurableException extends ServiceUnavailableException {
+
+        public NotDurableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final String entity;
+    private final Function<D, String> idOf;
+    private final ObjectMapper objectMapper;
+    private final MappedJournal journal;
+    private final int batchSize;
+    private final int maxPending;
+    private final Duration flushInterval;
+    private final Duration flushTimeout;
+    private final Queue<Pending<D>> queue = new ConcurrentLinkedQueue<>();
+    private final Map<String, D> pending = new ConcurrentHashMap<>();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private ScheduledExecutorService writer;
+    private Consumer<List<D>> chunkWriter;
+    private Consumer<D> rejectHandler;
+
+    /**
+     * Creates the writer and reads back the DTOs the journal still holds.
+     *
+     * @param entity The entity name, used for the writer thread and in logs.
+     * @param type The DTO class, to read the journal back.
+     * @param idOf Extracts the ID of a DTO.
+     * @param objectMapper Serializes the DTOs into the journal.
+     * @param journal The journal, or {@code null} to disable write-behind.
+     * @param batchSize The most DTOs written in one transaction.
+     * @param maxPending The most DTOs waiting to be written before new ones
+     * are refused.
+     * @param flushInterval The pause between passes of the writer.
+     * @param flushTimeout How long {@link #awaitFlushed(String)} waits.
+     */
+    public WriteBehindWriter(String entity, Class<D> type, Function<D, String> idOf, ObjectMapper objectMapper,
+            MappedJournal journal, int batchSize, int maxPending, Duration flushInterval, Duration flushTimeout) {
+        this.entity = entity;
+        this.idOf = idOf;
+        this.objectMapper = objectMapper;
+        this.journal = journal;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.flushInterval = flushInterval;
+        this.flushTimeout = flushTimeout;
+        if (journal == null) {
+            return;
+        }
+        for (MappedJournal.Entry entry : journal.getUnflushed()) {
+            try {
+                D dto = objectMapper.readValue(entry.payload(), type);
+                queue.add(new Pending<>(entry.sequence(), entry.timestamp(), dto));
+                pending.put(idOf.apply(dto), dto);
+            } catch (IOException e) {
+                rejected.incrementAndGet();
+                log.error("Dropping unreadable {} journal record {}", entity, entry.sequence(), e);
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.info("Replaying {} {} records from the write-behind journal", queue.size(), entity);
+        }
+    }
+
+    /**
+     * Starts the background writer.
+     *
+     * @param chunkWriter Inserts one chunk of DTOs in a single transaction.
+     * @param rejectHandler Called with each DTO the database refused.
+     */
+    public synchronized void start(Consumer<List<D>> chunkWriter, Consumer<D> rejectHandler) {
+        if (journal == null || writer != null) {
+            return;
+        }
+        this.chunkWriter = chunkWriter;
+        this.rejectHandler = rejectHandler;
+        writer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, entity + "-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::drain, 0, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the writer once its current pass ends. DTOs not yet written stay
+     * in the journal for the next start.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = writer;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(flushTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Journals a DTO for the writer. Once this returns, the DTO survives a
+     * crash of this instance. The record is appended and queued under a lock
+     * and forced to the disk after it is released, so concurrent callers
+     * share one force instead of queueing up behind each other's.
+     *
+     * @param dto The DTO, validated and with its ID assigned.
+     * @throws ConflictException If a DTO with the same ID is already waiting.
+     * @throws ServiceUnavailableException If {@code maxPending} DTOs are
+     * already waiting.
+     * @throws NotDurableException If the DTO was queued but its record could
+     * not be forced to the disk.
+     */
+    public void accept(D dto) {
+        String id = idOf.apply(dto);
+        if (pending.size() >= maxPending) {
+            log.warn("Write-behind for {} has {} records waiting; refusing {}", entity, pending.size(), id);
+            throw new ServiceUnavailableException(entity + " writes are backed up; retry later");
+        }
+        if (pending.putIfAbsent(id, dto) != null) {
+            throw new ConflictException(entity + " " + id + " is already waiting to be written");
+        }
+        MappedJournal.Entry entry;
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(dto);
+            synchronized (queue) {
+                entry = journal.append(payload);
+                queue.add(new Pending<>(entry.sequence(), entry.timestamp(), dto));
+            }
+        } catch (IOException e) {
+            pending.remove(id);
+            throw new UncheckedIOException("Appending " + entity + " " + id + " to the journal failed", e);
+        } catch (RuntimeException e) {
+            pending.remove(id);
+            throw e;
+        }
+        try {
+            journal.force(entry.sequence());
+        } catch (IOException | RuntimeException e) {
+            log.error("Forcing {} {} to the journal failed; it stays queued", entity, id, e);
+            throw new NotDurableException(entity + " " + id
+                    + " was accepted but may not survive a restart; check for it before retrying", e);
+        }
+    }
+
+    /**
+     * @param id The ID of a DTO.
+     * @return The DTO if it is accepted but not yet written, or {@code null}.
+     */
+    public D get(String id) {
+        return pending.get(id);
+    }
+
+    /**
+     * Waits until the DTO with an ID, if it is pending, has been written, so
+     * that an update or delete of it finds the row.
+     *
+     * @param id The ID of the DTO.
+     * @throws ServiceUnavailableException If it is still pending after the
+     * flush timeout.
+     */
+    public void awaitFlushed(String id) {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = writer;
+        }
+        if (id == null || running == null || !pending.containsKey(id)) {
+            return;
+        }
+        running.execute(this::drain);
+        long deadline = System.nanoTime() + flushTimeout.toNanos();
+        synchronized (pending) {
+            while (pending.containsKey(id)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new ServiceUnavailableException(entity + " " + id + " is still being written; retry later");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ServiceUnavailableException(entity + " " + id + " is still being written; retry later");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of DTOs accepted but not yet written.
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * @return How long the oldest pending DTO has waited, in seconds, or zero
+     * if none is waiting.
+     */
+    public double getLagSeconds() {
+        Pending<D> oldest = queue.peek();
+        return oldest == null ? 0 : Math.max(0, System.currentTimeMillis() - oldest.timestamp()) / 1000.0;
+    }
+
+    public long getFlushed() {
+        return flushed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private synchronized void drain() {
+        try {
+            while (!queue.isEmpty()) {
+                List<Pending<D>> chunk = new ArrayList<>(batchSize);
+                Iterator<Pending<D>> entries = queue.iterator();
+                while (entries.hasNext() && chunk.size() < batchSize) {
+                    chunk.add(entries.next());
+                }
+                write(chunk);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Write-behind for {} failed with {} records waiting; retrying in {}", entity, queue.size(),
+                    flushInterval, e);
+        } catch (IOException e) {
+            log.error("Writing the {} journal checkpoint failed; retrying in {}", entity, flushInterval, e);
+        }
+    }
+
+    /**
+     * Writes a chunk from the head of the queue, splitting it around DTOs the
+     * database refuses, and removes each part from the queue as it commits.
+     */
+    private void write(List<Pending<D>> chunk) throws IOException {
+        List<D> dtos = new ArrayList<>(chunk.size());
+        chunk.forEach(entry -> dtos.add(entry.dto()));
+        try {
+            chunkWriter.accept(dtos);
+            flushed.addAndGet(chunk.size());
+        } catch (RuntimeException e) {
+            if (!DataErrorUtil.isDataError(e)) {
+                throw e;
+            }
+            if (chunk.size() > 1) {
+                int half = chunk.size() / 2;
+                write(chunk.subList(0, half));
+                write(chunk.subList(half, chunk.size()));
+                return;
+            }
+            D dto = dtos.get(0);
+            rejected.incrementAndGet();
+            log.error("Dropping {} {} from the write-behind journal: {}", entity, idOf.apply(dto),
+                    NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            rejectHandler.accept(dto);
+        }
+        complete(chunk);
+    }
+
+    private void complete(List<Pending<D>> chunk) throws IOException {
+        for (int i = 0; i < chunk.size(); i++) {
+            queue.poll();
+        }
+        journal.checkpoint(chunk.get(chunk.size() - 1).sequence());
+        synchronized (pending) {
+            chunk.forEach(entry -> pending.remove(idOf.apply(entry.dto()), entry.dto()));
+            pending.notifyAll();
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+-- Indexes backing the /search operators of the patientdetails service.
+-- Run once as the application user after the tables exist:
+--   sqlplus medirecords_3235/password@//localhost:1521/orclpdb1 @search_indexes.sql
+--
+-- eq, in, gt/gte/lt/lte and between become index range scans, and so does
+-- prefix (LIKE 'value%'). contains (LIKE '%value%') cannot use these indexes.
+
+CREATE INDEX appointment_patientid_idx ON Appointment (patientid);
+
+CREATE INDEX appointment_doctorname_idx ON Appointment (doctorname);
+
+CREATE INDEX billingdetails_patientid_idx ON Billingdetails (patientid);
+
+CREATE INDEX billingdetails_status_idx ON Billingdetails (paymentstatus, patientid);
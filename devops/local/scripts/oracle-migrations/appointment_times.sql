@@ -0,0 +1,11 @@
+-- Time slot columns of Appointment. Run once as the application user
+-- before deploying the release that maps them:
+--   sqlplus medirecords_3235/password@//localhost:1521/orclpdb1 @appointment_times.sql
+--
+-- Both columns are nullable: existing appointments have no time slot and
+-- are left as they are. The index serves the overlap check and the free
+-- slot query while the in-memory schedule is still loading.
+
+ALTER TABLE Appointment ADD (starttime TIMESTAMP, endtime TIMESTAMP);
+
+CREATE INDEX appointment_doctor_start_ix ON Appointment (doctorname, starttime);
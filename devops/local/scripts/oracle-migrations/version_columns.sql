@@ -0,0 +1,11 @@
+-- Version columns of the patientdetails service, used for ETags and
+-- If-Match writes. Run once as the application user before deploying the
+-- release that maps them:
+--   sqlplus medirecords_3235/password@//localhost:1521/orclpdb1 @version_columns.sql
+--
+-- A NOT NULL column with a default is added as metadata only, so existing
+-- rows are not rewritten and start at version 0.
+
+ALTER TABLE Appointment ADD (version NUMBER(19) DEFAULT 0 NOT NULL);
+
+ALTER TABLE Billingdetails ADD (version NUMBER(19) DEFAULT 0 NOT NULL);